@@ -0,0 +1,357 @@
+// File: Checkpoint.java
+// Description:
+//    Saves the complete state of a MemManage model to a compact binary
+//    snapshot and restores it, so that many runs (different paging
+//    algorithms, prefetchers, frame allocations, ...) can be started from
+//    one warmed up state instead of all starting cold.
+//    The snapshot contains the clock, the FEL, the kernel (free list,
+//    replacement parameters, prefetcher state, cores and ready queues),
+//    the IO queue, the processes (page tables, allocated frames, working
+//    sets) and the states of all random variate generators. Output
+//    statistics (including the counters of the prefetcher and the hand
+//    move histogram) are not saved: a restored
+//    model collects its statistics from the checkpoint time (i.e. the
+//    warm up period is discarded). The idle time of the cores is saved
+//    (an IDLE core adds the time since idleSince when it becomes busy).
+import java.io.*;
+import java.util.*;
+import EvSchedSimul.*;
+
+class Checkpoint
+{
+	static final int Magic = 0x4D4D4350;  // "MMCP"
+	static final int Version = 5;  // 2: virtual time of the processes (WSCLOCK) 3: replacement parameters, prefetcher
+	                               // 4: idle time of the cores 5: accuracy of the prefetcher
+
+	// Event notice object types
+	static final byte ObjNone = 0;
+	static final byte ObjProcess = 1;
+	static final byte ObjCore = 2;
+
+	//-----------------------------------------------------------------
+	// Saving
+	public static void save(MemManage mm, String fileName) throws IOException
+	{
+	    FileOutputStream out = new FileOutputStream(fileName);
+	    try { out.write(save(mm)); }
+	    finally { out.close(); }
+	}
+
+	public static byte [] save(MemManage mm) throws IOException
+	{
+	    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	    DataOutputStream out = new DataOutputStream(bytes);
+	    Kernel krn = mm.kernel;
+	    EventNotice [] evs;
+	    int i;
+
+	    if(krn.sharing != null) throw new IOException("Checkpoints of models with shared pages are not supported");
+	    if(krn.swapTier != null) throw new IOException("Checkpoints of models with a compressed swap tier are not supported");
+	    if(krn.pagingAlgorithm == PagingAlgorithm.SAMPLEDLRU || krn.pagingAlgorithm == PagingAlgorithm.SAMPLEDLFU)
+	        throw new IOException("Checkpoints of models using sampled replacement are not supported");
+	    if(mm.scheduler != null) throw new IOException("Checkpoints of models with a scheduler are not supported");
+	    if(krn.numa != null) throw new IOException("Checkpoints of models with NUMA memory are not supported");
+	    out.writeInt(Magic);
+	    out.writeInt(Version);
+	    out.writeDouble(mm.clock);
+	    writeObject(out, mm.memoryAccesses);
+
+	    // Kernel
+	    out.writeInt(krn.pagingAlgorithm.ordinal());
+	    out.writeDouble(krn.timeLastFault);
+	    writeIntArray(out, krn.freeList);
+	    out.writeInt(krn.cores.length);
+	    for(i=0 ; i<krn.cores.length ; i++)
+	    {
+	        Core core = krn.cores[i];
+	        out.writeInt(core.action.ordinal());
+	        out.writeInt(core.processExecuting == null ? -1 : core.processExecuting.pid);
+	        out.writeLong(core.numSteals);
+	        out.writeDouble(core.idleTime);
+	        out.writeDouble(core.idleSince);  // an IDLE core keeps counting from there
+	        out.writeInt(core.readyQueue.size());
+	        for(Process prc : core.readyQueue) out.writeInt(prc.pid);
+	    }
+	    out.writeInt(mm.ioQueue.size());
+	    for(Process prc : mm.ioQueue) out.writeInt(prc.pid);
+	    out.writeInt(krn.scanBudget);
+	    out.writeDouble(krn.wsTau);
+	    out.writeInt(krn.handSpread);
+	    out.writeBoolean(krn.pageScan != null);
+	    writePrefetcher(out, krn);
+
+	    // Processes
+	    out.writeInt(mm.processes.length);
+	    for(i=0 ; i<mm.processes.length ; i++) writeProcess(out, mm.processes[i]);
+
+	    // FEL - in time order, stop events are not saved
+	    evs = mm.fel.toArray(new EventNotice[0]);
+	    Arrays.sort(evs);
+	    out.writeInt(evs.length);
+	    for(i=0 ; i<evs.length ; i++)
+	    {
+	        out.writeInt(evs[i].eventName);
+	        out.writeDouble(evs[i].timeAttr);
+	        if(evs[i].obj instanceof Process)
+	        { out.writeByte(ObjProcess); out.writeInt(((Process)evs[i].obj).pid); }
+	        else if(evs[i].obj instanceof Core)
+	        { out.writeByte(ObjCore); out.writeInt(((Core)evs[i].obj).id); }
+	        else
+	        { out.writeByte(ObjNone); out.writeInt(0); }
+	    }
+	    out.close();
+	    return(bytes.toByteArray());
+	}
+
+	// Class and throttling state of the prefetcher, and the page last loaded in each frame
+	private static void writePrefetcher(DataOutputStream out, Kernel krn) throws IOException
+	{
+	    Prefetcher pf = krn.prefetcher;
+	    int i;
+	    if(pf == null) { out.writeUTF(""); return; }
+	    out.writeUTF(pf.getClass().getName());
+	    out.writeInt(pf.maxDegree);
+	    out.writeInt(pf.degree);
+	    out.writeDouble(pf.recentAccuracy);
+	    out.writeInt(pf.faultsAtZero);
+	    out.writeBoolean(pf.frameProcess != null);
+	    if(pf.frameProcess != null)
+	    {
+	        for(i=0 ; i<pf.frameProcess.length ; i++)
+	        {
+	            out.writeInt(pf.frameProcess[i] == null ? -1 : pf.frameProcess[i].pid);
+	            out.writeInt(pf.framePage[i]);
+	        }
+	    }
+	}
+
+	private static void writeProcess(DataOutputStream out, Process prc) throws IOException
+	{
+	    int i;
+	    out.writeInt(prc.pid);
+	    out.writeInt(prc.numPages);
+	    if(prc.columns != null) prc.columns.flush(prc);  // counts and used bits held by the page scans
+	    for(i=0 ; i<prc.numPages ; i++)
+	    {
+	        PgTblEntry pte = prc.pageTable[i];
+	        out.writeByte((pte.valid ? 1 : 0) | (pte.used ? 2 : 0) | (pte.prefetched ? 4 : 0));
+	        out.writeInt(pte.frameNum);
+	        out.writeDouble(pte.tmStamp);
+	        out.writeLong(pte.count);
+	        out.writeLong(pte.lastRef);
+	    }
+	    out.writeLong(prc.virtualTime);
+	    out.writeInt(prc.numAllocatedFrames);
+	    writeIntArray(out, prc.allocatedFrames);
+	    out.writeInt(prc.framePtr);
+	    out.writeInt(prc.wsSize);
+	    writeIntArray(out, prc.workingSet);
+	    writeIntArray(out, prc.pagePool);
+	    writeIntArray(out, prc.wsSegments);
+	    out.writeInt(prc.numMemAccess);
+	    out.writeInt(prc.numMA2ChangeWS);
+	    out.writeInt(prc.vpage);
+	    out.writeInt(prc.vpageFromFault);
+	    out.writeInt(prc.lastFaultPage);
+	    out.writeInt(prc.lastFaultStride);
+	    out.writeInt(prc.core.id);
+	    writeObject(out, prc.prcDiscreteRandom);
+	    writeObject(out, prc.prcMA2ChangeWS);
+	    writeObject(out, prc.prcBern);
+	}
+
+	private static void writeIntArray(DataOutputStream out, int [] a) throws IOException
+	{
+	    int i;
+	    if(a == null) { out.writeInt(-1); return; }
+	    out.writeInt(a.length);
+	    for(i=0 ; i<a.length ; i++) out.writeInt(a[i]);
+	}
+
+	// Random variate generators (Colt or fast) are written with Java serialization
+	private static void writeObject(DataOutputStream out, Object obj) throws IOException
+	{
+	    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	    ObjectOutputStream oos = new ObjectOutputStream(bytes);
+	    oos.writeObject(obj);
+	    oos.close();
+	    out.writeInt(bytes.size());
+	    bytes.writeTo(out);
+	}
+
+	//-----------------------------------------------------------------
+	// Restoring
+	public static MemManage restore(String fileName, double tftime, String phiFileName) throws IOException
+	{
+	    FileInputStream in = new FileInputStream(fileName);
+	    try { return(restore(in.readAllBytes(), tftime, phiFileName)); }
+	    finally { in.close(); }
+	}
+
+	// Creates a model in the saved state that will run until tftime
+	public static MemManage restore(byte [] snapshot, double tftime, String phiFileName) throws IOException
+	{
+	    DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+	    MemManage mm;
+	    Kernel krn;
+	    HashMap<Integer,Process> byPid = new HashMap<Integer,Process>();
+	    double clock;
+	    PoissonRV memoryAccesses;
+	    PagingAlgorithm pgAlg;
+	    double timeLastFault;
+	    int [] freeList;
+	    int numCores;
+	    int i, j, n;
+
+	    if(in.readInt() != Magic) throw new IOException("Not a MemManage checkpoint");
+	    if(in.readInt() != Version) throw new IOException("Unsupported checkpoint version");
+	    clock = in.readDouble();
+	    memoryAccesses = (PoissonRV) readObject(in);
+	    pgAlg = PagingAlgorithm.values()[in.readInt()];
+	    timeLastFault = in.readDouble();
+	    freeList = readIntArray(in);
+	    numCores = in.readInt();
+
+	    // Build a model with the same structure - its state is replaced below
+	    mm = new MemManage(pgAlg, clock, tftime, new Seeds(1,1,1,1,1,1,1,1,1,1,1,1,1,1), numCores, phiFileName);
+	    krn = mm.kernel;
+	    mm.memoryAccesses = memoryAccesses;
+	    krn.timeLastFault = timeLastFault;
+	    krn.freeList = freeList;
+	    for(i=0 ; i<mm.processes.length ; i++) byPid.put(mm.processes[i].pid, mm.processes[i]);
+	    mm.ioQueue.clear();
+
+	    for(i=0 ; i<numCores ; i++)
+	    {
+	        Core core = krn.cores[i];
+	        core.action = Kaction.values()[in.readInt()];
+	        core.processExecuting = byPid.get(in.readInt());  // null if -1
+	        core.numSteals = in.readLong();
+	        core.idleTime = in.readDouble();
+	        core.idleSince = in.readDouble();
+	        core.readyQueue.clear();
+	        n = in.readInt();
+	        for(j=0 ; j<n ; j++) core.readyQueue.add(byPid.get(in.readInt()));
+	    }
+	    n = in.readInt();
+	    for(j=0 ; j<n ; j++) mm.ioQueue.add(byPid.get(in.readInt()));
+	    krn.scanBudget = in.readInt();
+	    krn.wsTau = in.readDouble();
+	    krn.handSpread = in.readInt();
+	    krn.pageScan = in.readBoolean() ? PageScan.create() : null;
+	    readPrefetcher(in, krn, byPid);
+
+	    n = in.readInt();
+	    if(n != mm.processes.length) throw new IOException("Checkpoint has "+n+" processes");
+	    for(i=0 ; i<n ; i++)
+	    {
+	        Process prc = byPid.get(in.readInt());
+	        if(prc == null) throw new IOException("Unknown process in checkpoint");
+	        readProcess(in, prc, krn);
+	    }
+
+	    // FEL - replaces the events scheduled by the constructor
+	    mm.fel.clear();
+	    n = in.readInt();
+	    for(i=0 ; i<n ; i++)
+	    {
+	        int name = in.readInt();
+	        double time = in.readDouble();
+	        byte type = in.readByte();
+	        int id = in.readInt();
+	        if(name == mm.StopEvent) continue;  // run length is given by tftime
+	        if(type == ObjProcess) mm.addEventNotice(name, time, byPid.get(id));
+	        else if(type == ObjCore) mm.addEventNotice(name, time, krn.cores[id]);
+	        else mm.addEventNotice(name, time);
+	    }
+	    mm.setTimef(tftime);
+	    mm.clock = clock;
+	    mm.phiTimeBtwFaults.clearSet();  // drop the sample put by the constructor
+	    return(mm);
+	}
+
+	private static void readPrefetcher(DataInputStream in, Kernel krn, HashMap<Integer,Process> byPid) throws IOException
+	{
+	    String name = in.readUTF();
+	    Prefetcher pf;
+	    int i;
+	    if(name.length() == 0) { krn.prefetcher = null; return; }
+	    try
+	    {
+	        pf = (Prefetcher) Class.forName(name).getDeclaredConstructor(int.class).newInstance(in.readInt());
+	    }
+	    catch(ReflectiveOperationException e) { throw new IOException("Bad prefetcher in checkpoint", e); }
+	    pf.degree = in.readInt();
+	    pf.recentAccuracy = in.readDouble();
+	    pf.faultsAtZero = in.readInt();
+	    if(in.readBoolean())
+	    {
+	        pf.frameProcess = new Process[krn.numFrames];
+	        pf.framePage = new int[krn.numFrames];
+	        for(i=0 ; i<krn.numFrames ; i++)
+	        {
+	            pf.frameProcess[i] = byPid.get(in.readInt());  // null if -1
+	            pf.framePage[i] = in.readInt();
+	        }
+	    }
+	    krn.prefetcher = pf;
+	}
+
+	private static void readProcess(DataInputStream in, Process prc, Kernel krn) throws IOException
+	{
+	    int i;
+	    if(in.readInt() != prc.numPages) throw new IOException("Page table size differs for process "+prc.pid);
+	    for(i=0 ; i<prc.numPages ; i++)
+	    {
+	        PgTblEntry pte = prc.pageTable[i];
+	        int flags = in.readByte();
+	        pte.valid = (flags & 1) != 0;
+	        pte.used = (flags & 2) != 0;
+	        pte.prefetched = (flags & 4) != 0;
+	        pte.frameNum = in.readInt();
+	        pte.tmStamp = in.readDouble();
+	        pte.count = in.readLong();
+	        pte.lastRef = in.readLong();
+	    }
+	    prc.virtualTime = in.readLong();
+	    prc.columns = null;  // copied again from the page table
+	    prc.numAllocatedFrames = in.readInt();
+	    prc.allocatedFrames = readIntArray(in);
+	    prc.framePtr = in.readInt();
+	    prc.wsSize = in.readInt();
+	    prc.workingSet = readIntArray(in);
+	    prc.pagePool = readIntArray(in);
+	    prc.wsSegments = readIntArray(in);
+	    prc.numMemAccess = in.readInt();
+	    prc.numMA2ChangeWS = in.readInt();
+	    prc.vpage = in.readInt();
+	    prc.vpageFromFault = in.readInt();
+	    prc.lastFaultPage = in.readInt();
+	    prc.lastFaultStride = in.readInt();
+	    prc.core = krn.cores[in.readInt()];
+	    prc.prcDiscreteRandom = (UniformRV) readObject(in);
+	    prc.prcMA2ChangeWS = (PoissonRV) readObject(in);
+	    prc.prcBern = (BernoulliRV) readObject(in);
+	}
+
+	private static int [] readIntArray(DataInputStream in) throws IOException
+	{
+	    int n = in.readInt();
+	    int [] a;
+	    int i;
+	    if(n == -1) return(null);
+	    a = new int[n];
+	    for(i=0 ; i<n ; i++) a[i] = in.readInt();
+	    return(a);
+	}
+
+	private static Object readObject(DataInputStream in) throws IOException
+	{
+	    byte [] b = new byte[in.readInt()];
+	    in.readFully(b);
+	    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(b));
+	    try { return(ois.readObject()); }
+	    catch(ClassNotFoundException e) { throw new IOException("Bad random generator in checkpoint", e); }
+	    finally { ois.close(); }
+	}
+}
@@ -0,0 +1,79 @@
+// File: CheckpointExp.java
+// Description:
+//    Simulation of memory management system - one warm up run saved in a
+//    checkpoint, then several runs restored from it
+
+import java.io.*;
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class CheckpointExp
+{
+   public static void main(String[] args) throws IOException
+   {
+       double startTime=0.0, warmUpTime=1000000, endTime=5000000;  // 1 second warm up, 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       byte [] snapshot;
+       int accessesAtCheckpoint;
+       int i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       // Warm up and save the state
+       System.out.println("Warming up using LRU");
+       mmng = new MemManage(PagingAlgorithm.LRU,startTime,warmUpTime,sds);
+       mmng.runSimulation();
+       snapshot = Checkpoint.save(mmng);
+       System.out.println("Checkpoint size (bytes): "+snapshot.length);
+       System.out.println();
+
+       // Validation: the restored run must follow the original run exactly
+       accessesAtCheckpoint = mmng.numMemAccesses;
+       mmng.setTimef(endTime);
+       mmng.runSimulation();
+       System.out.println("Original run, memory accesses after the checkpoint: "+
+                          (mmng.numMemAccesses-accessesAtCheckpoint));
+
+       // What-if runs from the same warmed up state
+       for(i=0 ; i<PagingAlgorithm.values().length ; i++)
+       {
+           mmng = Checkpoint.restore(snapshot,endTime,"phiTimeBtwFaults");
+           mmng.kernel.pagingAlgorithm = PagingAlgorithm.values()[i];
+           System.out.println("Running simulation from checkpoint using "+mmng.kernel.pagingAlgorithm);
+           mmng.runSimulation();
+           mmng.computeOutput();
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           System.out.println();
+       }
+
+       // Validation with a prefetcher (its state is part of the checkpoint)
+       System.out.println("Warming up using LRU with a segment prefetcher");
+       mmng = new MemManage(PagingAlgorithm.LRU,startTime,warmUpTime,sds);
+       mmng.kernel.prefetcher = new SegmentPrefetcher(2);
+       mmng.runSimulation();
+       snapshot = Checkpoint.save(mmng);
+       accessesAtCheckpoint = mmng.numMemAccesses;
+       mmng.setTimef(endTime);
+       mmng.runSimulation();
+       System.out.println("Original run, memory accesses after the checkpoint: "+
+                          (mmng.numMemAccesses-accessesAtCheckpoint)+" idle time: "+mmng.kernel.cores[0].idleTime(mmng.clock));
+       mmng = Checkpoint.restore(snapshot,endTime,"phiTimeBtwFaults");
+       mmng.runSimulation();
+       System.out.println("Restored run, memory accesses after the checkpoint: "+mmng.numMemAccesses+
+                          " idle time: "+mmng.kernel.cores[0].idleTime(mmng.clock));
+       System.out.println("Pages prefetched: "+mmng.kernel.prefetcher.numIssued+
+                          " useful: "+mmng.kernel.prefetcher.numUseful+" wasted: "+mmng.kernel.prefetcher.numWasted);
+   }
+}
@@ -0,0 +1,118 @@
+// File: CompressedSwap.java
+// Description:
+//    Compressed in-memory swap tier (like zswap) between the frames and
+//    the disk. Pages replaced in the frames are kept compressed in a pool
+//    of fixed capacity. A fault on a page in the pool is serviced in
+//    latency time units (decompression) instead of FaultTime. A page leaves
+//    the pool when it is faulted on. When the pool is full, a page is
+//    written back to the disk: the page stored first (FIFO) or, with
+//    byLastUse, the page whose last reference (tmStamp) is the oldest.
+//    byLastUse scans the pool - O(capacity) per write back.
+//    The pool uses poolFrames frames taken from the free list of the
+//    kernel; it holds poolFrames*compressionRatio pages.
+import java.util.*;
+
+class CompressedSwap
+{
+	int capacity;		// number of pages the pool can hold
+	double latency;		// time to service a fault from the pool
+	boolean byLastUse;	// write back the page referenced the longest ago (instead of the first stored)
+	LinkedHashMap<Long,Double> pool;	// pages in the pool (key: pid and page) with their tmStamp, in storing order
+	Process [] frameProcess;	// process whose page is in each frame (to find replaced pages)
+	int [] framePage;		// page in each frame
+
+	// Statistics
+	long numPoolFaults;	// faults serviced from the pool
+	long numDiskFaults;	// faults serviced from the disk
+	long numStores;		// pages compressed into the pool
+	long numWritebacks;	// pages written back to the disk when the pool is full
+
+	public CompressedSwap(Kernel krn, int poolFrames, double compressionRatio, double latency, boolean byLastUse)
+	{
+	   int i;
+	   for(i=0 ; i<poolFrames ; i++)  // memory used by the pool
+	      if(krn.getNextFreeFrame() == -1) { poolFrames = i; break; }
+	   capacity = (int)(poolFrames*compressionRatio);
+	   this.latency = latency;
+	   this.byLastUse = byLastUse;
+	   pool = new LinkedHashMap<Long,Double>();
+	   frameProcess = new Process[krn.numFrames];
+	   framePage = new int[krn.numFrames];
+	}
+
+	static long key(Process prc, int vpage) { return(((long)prc.pid << 32) | vpage); }
+
+	// Called when a fault on vpage starts - returns the time to service it
+	public double startFault(int vpage, Process prc, double faultTime)
+	{
+	    if(pool.remove(key(prc, vpage)) != null)
+	    {
+	        numPoolFaults++;
+	        return(latency);
+	    }
+	    numDiskFaults++;
+	    return(faultTime);
+	}
+
+	// Called after vpage was loaded in a frame of prc. The page that was in
+	// the frame before, if replaced, is stored in the pool.
+	public void pageLoaded(int vpage, Process prc)
+	{
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    int frame = pte.frameNum;
+	    Process old;
+	    int oldPage;
+
+	    if(!pte.valid || pte.borrowed) return;
+	    old = frameProcess[frame];
+	    oldPage = framePage[frame];
+	    if(old != null && (old != prc || oldPage != vpage))
+	    {
+	        PgTblEntry opte = old.pageTable[oldPage];
+	        if(!opte.valid || opte.borrowed || opte.frameNum != frame)  // was replaced
+	        {
+	            pool.put(key(old, oldPage), opte.tmStamp);
+	            numStores++;
+	            if(pool.size() > capacity) writeBack();
+	        }
+	    }
+	    frameProcess[frame] = prc;
+	    framePage[frame] = vpage;
+	    pool.remove(key(prc, vpage));  // e.g. prefetched from the disk while in the pool
+	}
+
+	// Removes a page from the full pool (written to the disk)
+	private void writeBack()
+	{
+	    Iterator<Map.Entry<Long,Double>> it = pool.entrySet().iterator();
+	    Map.Entry<Long,Double> e;
+	    Long victim = null;
+	    double oldest = Double.POSITIVE_INFINITY;
+
+	    if(!byLastUse) { it.next(); it.remove(); }  // first stored
+	    else
+	    {
+	        while(it.hasNext())
+	        {
+	            e = it.next();
+	            if(victim == null || e.getValue() < oldest) { victim = e.getKey(); oldest = e.getValue(); }
+	        }
+	        pool.remove(victim);
+	    }
+	    numWritebacks++;
+	}
+
+	// The frame was freed without its page being replaced (e.g. the process
+	// was suspended): the page is not stored in the pool when the frame is reused
+	public void releaseFrame(int frame)
+	{
+	    frameProcess[frame] = null;
+	}
+
+	// Fraction of the faults serviced by the pool
+	public double poolHitRate()
+	{
+	    if(numPoolFaults+numDiskFaults == 0) return(0.0);
+	    return((double)numPoolFaults/(numPoolFaults+numDiskFaults));
+	}
+}
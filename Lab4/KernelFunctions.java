@@ -58,9 +58,20 @@ public class KernelFunctions
         switch(krn.pagingAlgorithm)
         {
             case FIFO: pageReplAlgorithmFIFO(vpage, prc); break;
-            case LRU: pageReplAlgorithmLRU(vpage, prc); break;
+            case LRU:
+                if(krn.numa != null && krn.numa.preferLocal) pageReplAlgorithmLRU(vpage, prc, krn.numa);  // no pageScan columns
+                else if(krn.pageScan != null) pageReplAlgorithmLRU(vpage, prc, krn.pageScan);
+                else pageReplAlgorithmLRU(vpage, prc);
+                break;
             case CLOCK: pageReplAlgorithmCLOCK(vpage, prc); break;
-            case COUNT: pageReplAlgorithmCOUNT(vpage, prc); doingCount=true; break;
+            case WSCLOCK: pageReplAlgorithmWSCLOCK(vpage, prc, krn); break;
+            case CLOCK2: pageReplAlgorithmCLOCK2(vpage, prc, krn); break;
+            case SAMPLEDLRU: krn.sampler.replace(vpage, prc, false); break;
+            case SAMPLEDLFU: krn.sampler.replace(vpage, prc, true); break;
+            case COUNT:
+                if(krn.pageScan != null) pageReplAlgorithmCOUNT(vpage, prc, krn.pageScan);
+                else pageReplAlgorithmCOUNT(vpage, prc);
+                doingCount=true; break;
         }
     }
 
@@ -82,6 +93,13 @@ public class KernelFunctions
 
         // Update count for COUNT
         prc.pageTable[vpage].count++;
+
+        // Update reference time in the virtual time of the process for WSCLOCK
+        prc.virtualTime++;
+        prc.pageTable[vpage].lastRef = prc.virtualTime;
+
+        // Same updates in the columns of the page scans
+        PageColumns.referenced(prc, vpage, clock);
     }
 
     // FIFO 
@@ -128,6 +146,132 @@ public class KernelFunctions
         }
     }
 
+    // WSClock: the hand clears used bits and evicts the first page outside
+    // the working set (not referenced during the last krn.wsTau references
+    // of the process - its virtual time, so other processes do not age its
+    // pages). At most krn.scanBudget frames are examined; when no page is
+    // found the unused page referenced the longest ago (or the page at the
+    // hand) is evicted.
+    public static void pageReplAlgorithmWSCLOCK(int vpage, Process prc, Kernel krn)
+    {
+        int numFrames = prc.allocatedFrames.length;
+        long now = prc.virtualTime;
+        int victim = -1;   // slot of the page to replace
+        int oldest = -1;   // slot of the oldest page not used seen by the hand
+        int moves;
+
+        for (moves = 0; moves < krn.scanBudget && moves < numFrames; moves++)
+        {
+            int page = slotPage(prc, prc.framePtr);
+            PgTblEntry pte = prc.pageTable[page];
+            if (pte.used)
+                pte.used = false;  // referenced since last pass - still in the working set
+            else if (now - pte.lastRef > krn.wsTau)
+            {
+                victim = prc.framePtr;  // outside the working set
+                break;
+            }
+            else if (oldest == -1 || pte.lastRef < prc.pageTable[slotPage(prc, oldest)].lastRef)
+                oldest = prc.framePtr;
+            prc.framePtr = (prc.framePtr + 1) % numFrames;
+        }
+        if (victim == -1) victim = (oldest != -1) ? oldest : prc.framePtr;
+        krn.recordHandMoves(moves);
+        replaceSlot(vpage, prc, victim);
+        prc.framePtr = (victim + 1) % numFrames;
+    }
+
+    // Two-handed CLOCK: the front hand, krn.handSpread frames ahead of the back
+    // hand (framePtr), clears used bits; the back hand evicts the first page
+    // whose used bit is still clear. Both hands move together on every step
+    // (the eviction step included) so they stay handSpread frames apart.
+    // At most krn.scanBudget steps are taken, then the page at the back hand
+    // is evicted.
+    public static void pageReplAlgorithmCLOCK2(int vpage, Process prc, Kernel krn)
+    {
+        int numFrames = prc.allocatedFrames.length;
+        int spread = Math.max(1, Math.min(krn.handSpread, numFrames - 1));
+        boolean evict;
+        int moves;
+
+        for (moves = 0; moves < krn.scanBudget; moves++)
+        {
+            evict = !prc.pageTable[slotPage(prc, prc.framePtr)].used;  // back hand
+            prc.pageTable[slotPage(prc, (prc.framePtr + spread) % numFrames)].used = false; // front hand
+            if (evict) break;
+            prc.framePtr = (prc.framePtr + 1) % numFrames;
+        }
+        if (moves == krn.scanBudget)  // budget used up - front hand of the eviction step
+            prc.pageTable[slotPage(prc, (prc.framePtr + spread) % numFrames)].used = false;
+        krn.recordHandMoves(moves);
+        replaceSlot(vpage, prc, prc.framePtr);
+        prc.framePtr = (prc.framePtr + 1) % numFrames;
+    }
+
+    // Virtual page loaded in the frame at index slot of allocatedFrames.
+    // Uses prc.slotPage and only searches the page table when it is out of date
+    // (e.g. the frame was added by addPageFrame).
+    public static int slotPage(Process prc, int slot)
+    {
+        int page;
+        if (prc.slotPage == null || prc.slotPage.length < prc.allocatedFrames.length)
+        {
+            prc.slotPage = new int[prc.allocatedFrames.length];
+            java.util.Arrays.fill(prc.slotPage, -1);
+        }
+        page = prc.slotPage[slot];
+        if (page == -1 || !prc.pageTable[page].valid || prc.pageTable[page].frameNum != prc.allocatedFrames[slot])
+        {
+            page = findvPage(prc.pageTable, prc.allocatedFrames[slot]);
+            prc.slotPage[slot] = page;
+        }
+        return(page);
+    }
+
+    // Removes the frame at index slot of allocatedFrames from prc (the page
+    // table is not changed). slotPage follows allocatedFrames.
+    public static void removeSlot(Process prc, int slot)
+    {
+        int n = prc.allocatedFrames.length;
+        int [] fl;
+        int i;
+
+        if (n == 1) prc.allocatedFrames = null;
+        else
+        {
+            fl = new int[n-1];
+            for (i = 0; i < n-1; i++) fl[i] = prc.allocatedFrames[i < slot ? i : i+1];
+            prc.allocatedFrames = fl;
+        }
+        if (prc.slotPage != null && prc.slotPage.length >= n && n > 1)
+        {
+            fl = new int[n-1];
+            for (i = 0; i < n-1; i++) fl[i] = prc.slotPage[i < slot ? i : i+1];
+            prc.slotPage = fl;
+        }
+        else prc.slotPage = null;
+        if (prc.framePtr > slot) prc.framePtr--;
+        if (prc.framePtr >= n-1) prc.framePtr = 0;
+        prc.evictPool = null;
+        if (prc.columns != null) prc.columns.flush(prc);  // slots changed - copied again
+        prc.columns = null;
+    }
+
+    // Loads vpage in the frame at index slot of allocatedFrames
+    public static void replaceSlot(int vpage, Process prc, int slot)
+    {
+        int pageToReplace = slotPage(prc, slot);
+        int frame = prc.allocatedFrames[slot];
+        prc.pageTable[pageToReplace].valid = false;
+        prc.pageTable[vpage].frameNum = frame;
+        prc.pageTable[vpage].valid = true;
+        prc.pageTable[vpage].used = true;
+        PageColumns.setUsed(prc, vpage, true);
+        prc.slotPage[slot] = vpage;
+        PageColumns.mark(prc, pageToReplace);
+        PageColumns.loaded(prc, vpage, slot);
+    }
+
     public static void pageReplAlgorithmLRU(int vpage, Process prc)
     {
         int lRUPage = -1;
@@ -137,7 +281,7 @@ public class KernelFunctions
         for (int i = 0; i < prc.pageTable.length; i++)
         { 
 			//page used least frequently will have smallest timestamp 
-            if (prc.pageTable[i].valid)n //check if page is valid aka loaded into memory
+            if (prc.pageTable[i].valid && !prc.pageTable[i].borrowed) //check if page is valid aka loaded into memory (in a frame of the process)
             {
                 if (prc.pageTable[i].tmStamp < oldestTime) //check if page's timestamp is smaller  than oldest time
                 {
@@ -161,7 +305,7 @@ public class KernelFunctions
         // Step 1: Decay all valid pages and track smallest count
         for (int i = 0; i < prc.pageTable.length; i++)
         {
-            if (prc.pageTable[i].valid)
+            if (prc.pageTable[i].valid && !prc.pageTable[i].borrowed) // frames of other processes are not replaced
             {
                 // Decay count
                 prc.pageTable[i].count >>= 1;
@@ -196,6 +340,65 @@ public class KernelFunctions
         prc.pageTable[vpage].count = 0; // reset count for new page
     }
 
+    // LRU preferring the pages in frames of the node of the core of the process:
+    // the least recently used local page is replaced unless it is more than
+    // numa.localSlack younger than the least recently used page
+    public static void pageReplAlgorithmLRU(int vpage, Process prc, NumaMemory numa)
+    {
+        int lRUPage = -1;     // least recently used page
+        int localPage = -1;   // least recently used page in a local frame
+        int node = numa.coreNode(prc.core);
+
+        for (int i = 0; i < prc.pageTable.length; i++)
+        {
+            if (!prc.pageTable[i].valid || prc.pageTable[i].borrowed) continue;
+            if (lRUPage == -1 || prc.pageTable[i].tmStamp < prc.pageTable[lRUPage].tmStamp) lRUPage = i;
+            if (numa.frameNode(prc.pageTable[i].frameNum) == node &&
+                (localPage == -1 || prc.pageTable[i].tmStamp < prc.pageTable[localPage].tmStamp)) localPage = i;
+        }
+        if (localPage != -1 && prc.pageTable[localPage].tmStamp - prc.pageTable[lRUPage].tmStamp <= numa.localSlack)
+            lRUPage = localPage;
+        int frame = prc.pageTable[lRUPage].frameNum;
+        prc.pageTable[lRUPage].valid = false;
+        prc.pageTable[vpage].frameNum = frame;
+        prc.pageTable[vpage].valid = true;
+    }
+
+    // LRU and COUNT using the primitive array scans of PageScan
+    // (same pages replaced as the versions above). Only the entries changed
+    // since the last replacement are copied to the columns, and COUNT ages
+    // the counts in the columns (see PageColumns).
+    public static void pageReplAlgorithmLRU(int vpage, Process prc, PageScan scan)
+    {
+        int lRUPage;
+        if(prc.columns == null) prc.columns = new PageColumns(prc.numPages);
+        prc.columns.sync(prc);
+        lRUPage = scan.argMin(prc.columns.tmStamp, prc.numPages);
+        if (lRUPage == -1 || !prc.columns.valid[lRUPage])
+        {
+            System.out.println("LRU: No valid pages found for replacement.");
+            return;
+        }
+        replaceSlot(vpage, prc, prc.columns.slotOf[lRUPage]);
+    }
+
+    public static void pageReplAlgorithmCOUNT(int vpage, Process prc, PageScan scan)
+    {
+        int leastCountPage;
+        if(prc.columns == null) prc.columns = new PageColumns(prc.numPages);
+        prc.columns.sync(prc);
+        scan.decayAndBoost(prc.columns.count, prc.columns.used, prc.columns.valid, prc.numPages, 128);
+        leastCountPage = scan.argMinMasked(prc.columns.count, prc.columns.valid, prc.numPages);
+        if (leastCountPage == -1)
+        {
+            System.out.println("COUNT: No valid pages found for replacement.");
+            return;
+        }
+        replaceSlot(vpage, prc, prc.columns.slotOf[leastCountPage]);
+        prc.pageTable[vpage].count = 0; // reset count for new page
+        PageColumns.setCount(prc, vpage, 0);
+    }
+
     // finds the virtual page loaded in the specified frame fr
     public static int findvPage(PgTblEntry [] ptbl, int fr)
     {
@@ -226,6 +429,7 @@ public class KernelFunctions
     {
         int i;
 
+        if(prc.columns != null) prc.columns.flush(prc);  // counts and used bits held by the page scans
         System.out.println("--------------Process "+prc.pid+"----------------");
         System.out.println("Virtual pages: Total: "+prc.numPages+
                 " Code pages: "+prc.numCodePages+
@@ -235,7 +439,7 @@ public class KernelFunctions
         System.out.println("Simulation data: numAccesses left in cycle: "+prc.numMemAccess+
                 " Num to next change in working set: "+prc.numMA2ChangeWS);
         System.out.println("Working set is :");
-        for(i=0 ; i<prc.workingSet.length; i++)
+        for(i=0 ; i<prc.wsSize; i++)
         {
             System.out.print(" "+prc.workingSet[i]);
         }
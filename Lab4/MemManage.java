@@ -7,7 +7,8 @@ import EvSchedSimul.*;
 //
 // Some enumeration types
 enum Kaction { ACCESSING, MEMACCESS, PAGEFAULT, IDLE };  // Addressing actions possible by kernel 
-enum PagingAlgorithm { FIFO, LRU, CLOCK, COUNT };  // For definining paging algorithm used.
+enum PagingAlgorithm { FIFO, LRU, CLOCK, COUNT, WSCLOCK, CLOCK2, SAMPLEDLRU, SAMPLEDLFU };  // For definining paging algorithm used (CLOCK2: two-handed CLOCK).
+// SAMPLEDLRU and SAMPLEDLFU: LRU and COUNT approximated on a sample of the frames (see SampledEviction)
 
 // The Simulation model Class
 class MemManage extends EvSched  // Event Scheduling Simulation program
@@ -15,23 +16,31 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 	// Constants (time units is microseconds
 	final double FaultTime = 100;  // Time for faults 100 time units
 	final double MemTime = 1;	// Time for acessing memory 1 time unit
+	final double CopyTime = 10;	// Time for copying a copy-on-write page
 	final int NumFrames = 32; 	// number of physical frames
 	final int MeanMemAccesses = 20;  // mean number of memory accesses per process execution cycle
 	/* Parameter */
         // Paging algorithm set in the Kernel Class
 	
 	/* Data Modules for implementing timing maps */
-	Poisson memoryAccesses;  // for defining number of memory accesses by a process
+	PoissonRV memoryAccesses;  // for defining number of memory accesses by a process
 
 	/* Resource Entity - the kernel */
 	Kernel kernel;
 
 	/* Aggregate Entities */
-	ConcurrentLinkedQueue <Process> readyQueue;   	// process ready queue
+	Process [] processes;	// all processes of the model
+	// the ready queues are defined per core (see Core)
 	HashSet <Process> ioQueue;    // IO queue implemented as a set (to make code clearer)
+	Scheduler scheduler;	// chooses the process to execute from a ready queue - null for FIFO
+	// Group of a parallel simulation (see ParallelMemManage)
+	ArrayList<Migration> outbox;	// processes that left the model during the window - null if run alone
+	boolean migrateOne;	// the next process ending a page fault leaves the model
+	int numArrivals;	// processes arrived from other models
 
 	/* Output Sets */
 	ESOutputSet phiTimeBtwFaults;   // Sample Set
+	Telemetry telemetry;	// time series of the run - null for none
 	int numMemAccesses;  // Number of memory accesses with no page faults
 	long numPer1000;
 
@@ -39,35 +48,60 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 	// Model Behaviour
 	// Constructor - Also nitialises the model
 	public MemManage(PagingAlgorithm pgAlg, double t0time, double tftime, Seeds sd)
+	{
+		this(pgAlg, t0time, tftime, sd, 1);  // uniprocessor
+	}
+
+	// Constructor for a machine with numCores cores sharing the frames
+	public MemManage(PagingAlgorithm pgAlg, double t0time, double tftime, Seeds sd, int numCores)
+	{
+		this(pgAlg, t0time, tftime, sd, numCores, "phiTimeBtwFaults");
+	}
+
+	// Constructor giving the name of the file for the sample set
+	// (models run at the same time must use different names)
+	public MemManage(PagingAlgorithm pgAlg, double t0time, double tftime, Seeds sd, int numCores,
+	                 String phiFileName)
 	{
 		Process prc;
 		int pid = 100;
 
 		// Set up distribution functions
-		memoryAccesses = new Poisson(MeanMemAccesses,  
-				             new MersenneTwister(sd.mAcc));
+		memoryAccesses = PoissonRV.create(sd.mode, MeanMemAccesses, sd.mAcc);
 
 		// System Initialization
-		readyQueue = new ConcurrentLinkedQueue<Process>();
 		ioQueue = new HashSet<Process>();
+		processes = new Process[4];
 		// Lets do processes
-                prc = new Process(pid++, 10,8,6,6,250,sd.prc1,sd.maprc1,sd.bernprc1);  // 30 pages
-		kernel = new Kernel(NumFrames, pgAlg);
-		kernel.processExecuting = prc;  // Set up first process as executing
+                prc = new Process(pid++, 10,8,6,6,250,sd.prc1,sd.maprc1,sd.bernprc1,sd.mode);  // 30 pages
+		processes[0] = prc;
+		kernel = new Kernel(NumFrames, pgAlg, numCores);
+		kernel.sampler = new SampledEviction(5, 0, sd.dRand);  // for SAMPLEDLRU and SAMPLEDLFU
+		prc.core = kernel.cores[0];
+		kernel.cores[0].processExecuting = prc;  // Set up first process as executing
 		prc.numMemAccess = memoryAccesses.nextInt();
-		kernel.processExecuting.vpage = selectAddress(prc);
-		kernel.action=Kaction.PAGEFAULT;
-		// Other processes added to ready queue
-                prc = new Process(pid++, 10,6,4,4,150,sd.prc2,sd.maprc2,sd.bernprc2); // 24 pages
-		readyQueue.add(prc);
-                prc = new Process(pid++, 18,8,6,4,100,sd.prc3,sd.maprc3,sd.bernprc3);  // 36 pages
-		readyQueue.add(prc);
-                prc = new Process(pid++, 12,8,6,6,300,sd.prc4,sd.maprc4,sd.bernprc4); // 32 pages
-		readyQueue.add(prc);
+		prc.vpage = selectAddress(prc);
+		kernel.cores[0].action=Kaction.PAGEFAULT;
+		// Other processes added to the ready queues of the cores (round robin)
+                prc = new Process(pid++, 10,6,4,4,150,sd.prc2,sd.maprc2,sd.bernprc2,sd.mode); // 24 pages
+		processes[1] = prc;
+		kernel.cores[1%numCores].addProcess(prc);
+                prc = new Process(pid++, 18,8,6,4,100,sd.prc3,sd.maprc3,sd.bernprc3,sd.mode);  // 36 pages
+		processes[2] = prc;
+		kernel.cores[2%numCores].addProcess(prc);
+                prc = new Process(pid++, 12,8,6,6,300,sd.prc4,sd.maprc4,sd.bernprc4,sd.mode); // 32 pages
+		processes[3] = prc;
+		kernel.cores[3%numCores].addProcess(prc);
+		for(int i=0 ; i<processes.length ; i++) processes[i].index = i;
 		
 		// Setup sample set
-		phiTimeBtwFaults = new ESOutputSet("phiTimeBtwFaults");
+		phiTimeBtwFaults = new ESOutputSet(phiFileName);
 		numMemAccesses = 0;
+		telemetry = null;
+		scheduler = null;
+		outbox = null;
+		migrateOne = false;
+		numArrivals = 0;
 
 		// Initialize the simulation model
 		initEvSched(t0time,tftime);   
@@ -77,8 +111,9 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 	
 	// Future Events
 	// Future Event Names (used in FEL)
-	final int EndPageFault=1; // End of page fault
-	final int EndMemoryAccess=2; // End of memory access
+	final int EndPageFault=1; // End of page fault - object is the Process
+	final int EndMemoryAccess=2; // End of memory access - object is the Core
+	final int ArriveProcess=3; // Process from another model (parallel simulation) arrives - object is the Process
 
         // Translates event id to name(for loggin)
         public String getEventName(int num) 
@@ -87,16 +122,19 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 		{
 		  case EndPageFault: return("EndMemoryAccess");
 		  case EndMemoryAccess: return("EndMemoryAccess");
+		  case ArriveProcess: return("ArriveProcess");
 		}
 		return("Unknown");
 	}
 	
 	public void processEvent(int fEvent, Object obj)
 	{
+		if(telemetry != null) telemetry.advance(clock);  // buckets ending before this event see the state left by the previous one
 		switch(fEvent)
 		{
 		  case EndPageFault: endPageFault((Process)obj); break;
-		  case EndMemoryAccess: endMemoryAccess(); break;
+		  case EndMemoryAccess: endMemoryAccess((Core)obj); break;
+		  case ArriveProcess: arriveProcess((Process)obj); break;
 	          default: System.out.println("Bad future event" + fEvent); break;
 		}
 	}
@@ -104,88 +142,200 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 	private void endPageFault(Process cProcess)	// finished a page fault operation
 	{
 	   kernel.timeLastFault = clock;
+	   cProcess.cowFault = false;
+	   if(migrateOne && outbox != null)
+	   {  // leaves for another model instead of loading the page
+	      leave(cProcess);
+	      preConditions();
+	      return;
+	   }
+	   if(kernel.numa != null) kernel.numa.setRequester(cProcess);  // node of the frames taken
+	   if(kernel.prefetcher != null) // page prefetched and evicted unused before this fault
+	      kernel.prefetcher.demandFault(cProcess.vpage,cProcess);
+	   if(kernel.sharing != null) // another process may have loaded the shared page meanwhile
+	      kernel.sharing.mapIfResident(cProcess.vpage,cProcess);
 	   KernelFunctions.pageReplacement(cProcess.vpage,cProcess,kernel);
+	   kernel.pageLoaded(cProcess.vpage,cProcess);
+	   if(kernel.prefetcher != null) // bring in predicted pages with the same I/O
+	      kernel.prefetcher.prefetch(cProcess.vpage,cProcess,kernel,clock);
 	   if(!ioQueue.remove(cProcess)) System.out.println("Process "+cProcess.pid+" not in ioQueue");
-	   else readyQueue.add(cProcess);
+	   else cProcess.core.readyQueue.add(cProcess);  // back on the run queue of its core
 	   preConditions(); // start activities
 	}
 
-	private void endMemoryAccess()	// endMemoryAcess SCS 
+	// Parallel simulation: prc leaves the model at the end of its fault.
+	// Its frames are freed (it faults again on the page in the other model)
+	// and it goes to the outbox, delivered at the end of the window.
+	private void leave(Process prc)
+	{
+	   int i, n = 0;
+	   migrateOne = false;
+	   ioQueue.remove(prc);
+	   kernel.releaseFrames(prc);
+	   for(i=0 ; i<processes.length ; i++)
+	      if(processes[i] != prc) { processes[n] = processes[i]; processes[n].index = n; n++; }
+	   processes = Arrays.copyOf(processes, n);
+	   prc.core = null;
+	   outbox.add(new Migration(prc, clock));
+	}
+
+	// A process of another model arrives: added to the ready queue of the
+	// core with the fewest processes waiting
+	private void arriveProcess(Process prc)
+	{
+	   Core core = kernel.cores[0];
+	   int i;
+	   for(i=1 ; i<kernel.cores.length ; i++)
+	      if(kernel.cores[i].readyQueue.size() < core.readyQueue.size()) core = kernel.cores[i];
+	   processes = Arrays.copyOf(processes, processes.length+1);
+	   processes[processes.length-1] = prc;
+	   prc.index = processes.length-1;
+	   core.addProcess(prc);
+	   numArrivals++;
+	   preConditions();
+	}
+
+	private void endMemoryAccess(Core core)	// endMemoryAcess SCS 
 	{
 	   // PageFault and AccessMemory Terminating Event SCS 
-	   KernelFunctions.doneMemAccess(kernel.processExecuting.vpage,kernel.processExecuting,clock); // flag last memory access
-           if(kernel.processExecuting.numMemAccess <= 0)
+	   if(core.processExecuting.pageTable[core.processExecuting.vpage].prefetched && kernel.prefetcher != null)
+	      kernel.prefetcher.prefetchHit(core.processExecuting,core.processExecuting.vpage);
+	   KernelFunctions.doneMemAccess(core.processExecuting.vpage,core.processExecuting,clock); // flag last memory access
+	   if(kernel.sharing != null) // reference to the page of the owner of the frame
+	      kernel.sharing.accessed(core.processExecuting.vpage,core.processExecuting,clock);
+           if(core.processExecuting.numMemAccess <= 0)
 	   {
-	       readyQueue.add(kernel.processExecuting);  // adding current process to ready queue
-	       kernel.processExecuting = (Process) readyQueue.poll();
-	       if(kernel.processExecuting == null)
-	       {
-	           System.out.println("Error - no process on ready queue");
+	       core.readyQueue.add(core.processExecuting);  // adding current process to ready queue
+	       core.processExecuting = dispatch(core);
+	       if(core.processExecuting == null)
+	       {  // the scheduler started the faults of all processes instead
+	           core.action = Kaction.IDLE;
+	           core.idleSince = clock;
+	           preConditions();
+	           return;
 	       }
-	       kernel.processExecuting.numMemAccess = memoryAccesses.nextInt();
+	       core.processExecuting.numMemAccess = memoryAccesses.nextInt();
+	   }
+           if(core.processExecuting.numMA2ChangeWS <= 0)
+	   {
+	       core.processExecuting.updateWS();
+	       if(telemetry != null) telemetry.workingSetChange(core.processExecuting,clock);
 	   }
-           if(kernel.processExecuting.numMA2ChangeWS <= 0) kernel.processExecuting.updateWS();
-	   else kernel.processExecuting.numMA2ChangeWS--;
-	   if(kernel.processExecuting.vpageFromFault != -1)
+	   else core.processExecuting.numMA2ChangeWS--;
+	   if(core.processExecuting.vpageFromFault != -1)
 	   {
-	      kernel.processExecuting.vpage = kernel.processExecuting.vpageFromFault;
-	      kernel.processExecuting.vpageFromFault = -1;
+	      core.processExecuting.vpage = core.processExecuting.vpageFromFault;
+	      core.processExecuting.vpageFromFault = -1;
 	   }
-	   else kernel.processExecuting.vpage = selectAddress(kernel.processExecuting);
-	   kernel.action = nextAction(kernel.processExecuting.vpage, kernel.processExecuting);
+	   else core.processExecuting.vpage = selectAddress(core.processExecuting);
+	   core.action = nextAction(core.processExecuting.vpage, core.processExecuting);
 	   preConditions(); // start activities
 	}
 
-	// Check for starting events 
+	// Check for starting events on all cores
 	private void preConditions()
 	{
-		while(true)  // loop until no preconditions are true
+		boolean started = true;
+		int i;
+		while(started)  // loop until no preconditions are true on any core
 		{
-			if(kernel.action == Kaction.PAGEFAULT)
+			started = false;
+			for(i=0 ; i<kernel.cores.length ; i++)
 			{
-				phiTimeBtwFaults.put(clock,clock-kernel.timeLastFault);
-				Process cProcess = kernel.processExecuting;
-				cProcess.vpageFromFault = cProcess.vpage;  // flag page that caused fault
-				ioQueue.add(cProcess);
-	                        kernel.processExecuting = (Process) readyQueue.poll(); // Next process
-	                        if(kernel.processExecuting == null)
-				    kernel.action = Kaction.IDLE; // no processes to execute
-				else
-				{  // Execute the next process
-	                           kernel.processExecuting.numMemAccess = memoryAccesses.nextInt();
-	   			   if(kernel.processExecuting.vpageFromFault != -1)
-				   {
-					   kernel.processExecuting.vpage = kernel.processExecuting.vpageFromFault;
-					   kernel.processExecuting.vpageFromFault = -1;
-				   }
-				   else kernel.processExecuting.vpage = selectAddress(kernel.processExecuting);
-	   			   kernel.action = nextAction(kernel.processExecuting.vpage, kernel.processExecuting);
-				}
-				addEventNotice(EndPageFault,clock+FaultTime,cProcess);
+				while(preConditions(kernel.cores[i])) started = true;
 			}
-			else if(kernel.action == Kaction.MEMACCESS)
+		}
+	}
+
+	// Check for starting events on a core - returns true if an activity was started
+	private boolean preConditions(Core core)
+	{
+		if(core.action == Kaction.PAGEFAULT)
+		{
+			startFault(core.processExecuting);
+			if(core.readyQueue.isEmpty()) stealProcess(core);
+                        core.processExecuting = dispatch(core); // Next process
+                        if(core.processExecuting == null)
 			{
-				kernel.action = Kaction.ACCESSING;
-				kernel.processExecuting.numMemAccess--;
-				numMemAccesses++;
-				addEventNotice(EndMemoryAccess,clock+MemTime);
+			    core.action = Kaction.IDLE; // no processes to execute
+			    core.idleSince = clock;
 			}
-			else if((kernel.action == Kaction.IDLE) && (readyQueue.size() !=0) ) // StartExecuting Action
-			{
-	                    kernel.processExecuting = (Process) readyQueue.poll(); // Next process
-	                    kernel.processExecuting.numMemAccess = memoryAccesses.nextInt();
-	   		    if(kernel.processExecuting.vpageFromFault != -1)
-			    {
-			       kernel.processExecuting.vpage = kernel.processExecuting.vpageFromFault;
-			       kernel.processExecuting.vpageFromFault = -1;
-			    }
-			    else kernel.processExecuting.vpage = selectAddress(kernel.processExecuting);
-	   		    kernel.action = nextAction(kernel.processExecuting.vpage, kernel.processExecuting);
+			else
+			{  // Execute the next process
+                           core.processExecuting.numMemAccess = memoryAccesses.nextInt();
+   			   if(core.processExecuting.vpageFromFault != -1)
+			   {
+				   core.processExecuting.vpage = core.processExecuting.vpageFromFault;
+				   core.processExecuting.vpageFromFault = -1;
+			   }
+			   else core.processExecuting.vpage = selectAddress(core.processExecuting);
+   			   core.action = nextAction(core.processExecuting.vpage, core.processExecuting);
 			}
-                        else break;
+			return(true);
 		}
+		else if(core.action == Kaction.MEMACCESS)
+		{
+			core.action = Kaction.ACCESSING;
+			core.processExecuting.numMemAccess--;
+			numMemAccesses++;
+			if(telemetry != null) telemetry.access(core.processExecuting,clock);
+			addEventNotice(EndMemoryAccess,clock+memTime(core),core);
+			return(true);
+		}
+		else if((core.action == Kaction.IDLE) && 
+			((core.readyQueue.size() !=0) || stealProcess(core)) && // StartExecuting Action
+			((core.processExecuting = dispatch(core)) != null) )  // (a scheduler may start faults instead)
+		{
+		    core.idleTime += clock-core.idleSince;
+                    core.processExecuting.numMemAccess = memoryAccesses.nextInt();
+   		    if(core.processExecuting.vpageFromFault != -1)
+		    {
+		       core.processExecuting.vpage = core.processExecuting.vpageFromFault;
+		       core.processExecuting.vpageFromFault = -1;
+		    }
+		    else core.processExecuting.vpage = selectAddress(core.processExecuting);
+   		    core.action = nextAction(core.processExecuting.vpage, core.processExecuting);
+		    return(true);
+		}
+		return(false);
+	}
+
+	// Work stealing: moves a process from the longest run queue of the
+	// other cores to the run queue of core. Returns false if none found.
+	private boolean stealProcess(Core core)
+	{
+		Core victim = null;
+		int i;
+		for(i=0 ; i<kernel.cores.length ; i++)
+		{
+			if(kernel.cores[i] == core) continue;
+			if(kernel.cores[i].readyQueue.isEmpty()) continue;
+			if(victim == null || kernel.cores[i].readyQueue.size() > victim.readyQueue.size())
+				victim = kernel.cores[i];
+		}
+		if(victim == null) return(false);
+		core.addProcess(victim.readyQueue.poll());
+		core.numSteals++;
+		return(true);
 	}
 
+	// Next process to execute on core, taken from its ready queue - null if none
+	private Process dispatch(Core core)
+	{
+		if(scheduler != null) return(scheduler.select(core));
+		return(core.readyQueue.poll());
+	}
+
+	// Starts the page fault of prc on prc.vpage (the process goes to the IO queue)
+	public void startFault(Process prc)
+	{
+		phiTimeBtwFaults.put(clock,clock-kernel.timeLastFault);
+		prc.numFaults++;
+		if(telemetry != null) telemetry.fault(prc,clock);
+		prc.vpageFromFault = prc.vpage;  // flag page that caused fault
+		ioQueue.add(prc);
+		addEventNotice(EndPageFault,clock+faultTime(prc),prc);
+	}
 	public boolean implicitStopCondition( )  // termination explicit
 	{ return(false);}
 	
@@ -195,10 +345,27 @@ class MemManage extends EvSched  // Event Scheduling Simulation program
 
 	public Kaction nextAction(int vpage,Process prc)
 	{
+	    if(kernel.sharing != null) kernel.sharing.checkAccess(vpage,prc); // shared and copy-on-write pages
 	    if(prc.pageTable[vpage].valid) return(Kaction.MEMACCESS);
 	    else return(Kaction.PAGEFAULT);
 	}
 
+	// Time to service the fault of a process (called when the fault starts)
+	public double faultTime(Process prc)
+	{
+	    if(prc.cowFault) return(CopyTime);  // page copied in memory - no I/O
+	    if(kernel.swapTier != null) // takes the page from the compressed pool if it is there
+	        return(kernel.swapTier.startFault(prc.vpage,prc,FaultTime));
+	    return(FaultTime);
+	}
+
+	// Time of the memory access of the process executing on core
+	public double memTime(Core core)
+	{
+	    if(kernel.numa != null) return(kernel.numa.accessTime(core,MemTime,CopyTime));  // local or remote frame
+	    return(MemTime);
+	}
+
 	public void computeOutput()
 	{
           phiTimeBtwFaults.computePhiDSOVs();
@@ -214,6 +381,9 @@ class PgTblEntry
 	boolean used;    // Used Bit
         double tmStamp;  // Time Stamp
 	long count;   // for counting
+	boolean prefetched;  // loaded by the prefetcher and not referenced yet
+	boolean borrowed;    // shared page mapped to a frame of another process
+	long lastRef;        // virtual time of the process at the last reference (WSCLOCK)
     
 }
 
@@ -224,35 +394,59 @@ class Process
 	//-----------------------------------------
 	//  General process data structures
 	int pid;		// Process ID
+	int index;		// index in MemManage.processes
 	public int numPages;   // Number of virtual pages
 	public PgTblEntry [] pageTable;   // Page table
-	public int [] workingSet;   // List of virtual pages in working set
+	public int [] workingSet;   // List of virtual pages in working set (buffer reused by updateWS)
+	public int wsSize;          // Number of entries of workingSet in use
+	int [] pagePool;            // permutation of all pages, by segment, for sampling without replacement
 	int numAllocatedFrames;  // Number of allocated physical frames
+	static final int InitialFrames = 5;	// frames allocated to a process (allocateFrames)
 	int [] allocatedFrames;     // List of allocated frames - contains frame numbers
 	int framePtr;     // index into allocatedFrames.
 	//-----------------------------------------
 	// for Simulation of process execution to create locality of reference
-	Poisson prcMA2ChangeWS;   // for getting a discrete random number
-	Uniform prcDiscreteRandom;   // for getting a discrete random number
-	Binomial prcBern;	 // To create Bernouilli random number generator
+	PoissonRV prcMA2ChangeWS;   // for getting a discrete random number
+	UniformRV prcDiscreteRandom;   // for getting a discrete random number
+	BernoulliRV prcBern;	 // To create Bernouilli random number generator
 	int numMemAccess;	// number of memory accesses during a cycle executing
 	int numMA2ChangeWS;     // number of memory accesses to change working set
+	long virtualTime;	// memory references made by the process (its own time - WSCLOCK)
+	long numFaults;		// page faults of the process (load control)
 	public int [] wsSegments;  // defines indexes in workingSet to divide into segments (code, data, etc.)
 	public int vpage;     // virtual page being accessed
 	public int vpageFromFault;     // virtual page just loaded after default - need to be accessed first executed.
+	Core core;	// core whose ready queue holds the process
+	PageColumns columns;	// column copy of the page table for PageScan (allocated on first use - holds the counts and used bits)
+	int [] slotPage;	// page in each frame of allocatedFrames (WSCLOCK and CLOCK2 - see KernelFunctions.slotPage)
+	int [] evictPool;	// SAMPLEDLRU and SAMPLEDLFU: slots of the best candidates (see SampledEviction)
+	int evictPoolLen;	// number of slots in evictPool
+	// Shared pages (see SharedMemory) - null if the process shares no page
+	SharedSegment [] sharedSeg;	// segment of each page
+	int [] sharedIdx;	// index of each page in its segment
+	boolean cowFault;	// current fault is a copy-on-write copy
 	// Mumber of pages per segment of program
 	int numCodePages;   // Code segment
 	int numDataPages;   // Data segment
 	int numStackPages;   // Stack segment
 	int numHeapPages;   // Heap segment
+	// For the stride prefetcher
+	int lastFaultPage;    // page of the last fault
+	int lastFaultStride;  // difference between the last two faulting pages
 
 	public Process(int pid, int nCode, int nData, int nStack, int nHeap, int meanMA, int sd1, int sd2, int sd3)
+	{
+	   this(pid, nCode, nData, nStack, nHeap, meanMA, sd1, sd2, sd3, RandomMode.COLT);
+	}
+
+	public Process(int pid, int nCode, int nData, int nStack, int nHeap, int meanMA, int sd1, int sd2, int sd3,
+	               RandomMode mode)
 	{
 	   int i;  // an index
 	   // Setup random number generators
-	   prcDiscreteRandom = new Uniform(new MersenneTwister(sd1));
-	   prcMA2ChangeWS = new Poisson(meanMA,new MersenneTwister(sd2));
-	   prcBern = new Binomial(1,0.90,new MersenneTwister(sd3));
+	   prcDiscreteRandom = UniformRV.create(mode, sd1);
+	   prcMA2ChangeWS = PoissonRV.create(mode, meanMA, sd2);
+	   prcBern = BernoulliRV.create(mode, 0.90, sd3);
            // Setup process numbers
 	   this.pid = pid;
 	   numPages = nCode+nData+nStack+nHeap;
@@ -269,6 +463,12 @@ class Process
 	     pageTable[i].used = false;
 	     pageTable[i].tmStamp = 0;
 	   }
+	   // Buffers for the working set - allocated once
+	   workingSet = new int[Math.max(1,nCode/2)+Math.max(1,nData/2)+Math.max(1,nStack/2)+Math.max(1,nHeap/2)];
+	   pagePool = new int[numPages];
+	   for(i = 0 ; i<numPages ; i++) pagePool[i] = i;
+	   lastFaultPage = -1;
+	   lastFaultStride = 0;
 	   allocateFrames();  // Allocates frames - current fixed allocation 
 	   // Setup working set and list to generate page references
 	   wsSegments = new int[7];  // 0 - end of code 1 - end of data 2 - end of stack 3 - end of heap
@@ -281,7 +481,6 @@ class Process
 	{
 	    int ncode, ndata, nstack, nheap;  // number of pages in each segment
 	    int ix;  // index into working set
-	    int i;
 
 	    // Radomly select number of pages from each segment
 	    ncode = prcDiscreteRandom.nextIntFromTo(1, (numCodePages/2));
@@ -293,51 +492,42 @@ class Process
 	    if(nstack == 0) nstack = 1;
 	    if(nheap == 0) nheap = 1;
 
-	    workingSet = new int[ncode+ndata+nstack+nheap];
 	    ix = 0;
-	    for(i=0 ; i<ncode ; i++)  // Code pages
-	    { workingSet[ix] = getPageNumforWS(0,numCodePages-1,workingSet,ix); ix ++; }
+	    ix = getPagesforWS(0,numCodePages-1,ncode,ix);  // Code pages
 	    wsSegments[0] = ix-1;  // defines how many code pages are in working set
-	    for(i=0 ; i<ndata ; i++) // Data pages
-	    { workingSet[ix] = getPageNumforWS(numCodePages,numCodePages+numDataPages-1,workingSet,ix); ix ++; }
+	    ix = getPagesforWS(numCodePages,numCodePages+numDataPages-1,ndata,ix); // Data pages
 	    wsSegments[1] = ix-1;  // defines how many data pages are in working set
-	    for(i=0 ; i<nstack ; i++) // Stack pages
-	    { workingSet[ix] = getPageNumforWS(numCodePages+numDataPages,
-				              numCodePages+numDataPages+numStackPages-1,
-					      workingSet,ix); 
-	      ix ++; }
+	    ix = getPagesforWS(numCodePages+numDataPages,
+			       numCodePages+numDataPages+numStackPages-1,nstack,ix); // Stack pages
 	    wsSegments[2] = ix-1;  // defines how many stack pages are in working set
-	    for(i=0 ; i<nheap ; i++)  // Heap pages
-	    { workingSet[ix] = getPageNumforWS(numCodePages+numDataPages+numStackPages,
-				              numCodePages+numDataPages+numStackPages+numHeapPages-1,
-					      workingSet,ix); 
-	      ix ++; }
+	    ix = getPagesforWS(numCodePages+numDataPages+numStackPages,
+			       numCodePages+numDataPages+numStackPages+numHeapPages-1,nheap,ix); // Heap pages
 	    wsSegments[3] = ix-1;  // defines how many heap pages are in working set
+	    wsSize = ix;
 	    wsSegments[4] = 0;  // start with a code page
 	    numMA2ChangeWS = prcMA2ChangeWS.nextInt();  // Number of references before changing working set
 	}
 
-	private int getPageNumforWS(int start, int end, int [] list, int len)
+	// Selects n distinct pages between start and end and stores them in
+	// workingSet from index ix. Uses a partial Fisher-Yates shuffle of the
+	// segment in pagePool: O(n) and no allocation. pagePool does not need to
+	// be reset since shuffling any permutation of the segment gives a
+	// uniformly selected set of pages. Returns the next index in workingSet.
+	private int getPagesforWS(int start, int end, int n, int ix)
 	{
-	    int num;
-	    while(true)
-	    { // Keep asking for number until one not in list found
-		    // This can take a while if numbers in list contains
-		    // most of the numbers being selected AND an
-		    // infinite loop if all numbers are in the list
-	        num = prcDiscreteRandom.nextIntFromTo(start,end);
-	        if(notInIntArray(num,list,len)) return(num);
+	    int i;
+	    int j;
+	    int tmp;
+	    if(n > end-start+1) n = end-start+1;  // cannot select more pages than in the segment
+	    for(i=start ; i<start+n ; i++)
+	    {
+	        j = prcDiscreteRandom.nextIntFromTo(i,end);
+	        tmp = pagePool[i]; pagePool[i] = pagePool[j]; pagePool[j] = tmp;
+	        workingSet[ix++] = pagePool[i];
 	    }
+	    return(ix);
 	}
 
-	private boolean notInIntArray(int i, int [] array, int len)
-        {
-	   int ix;
-	   for(ix = 0 ; ix < len ; ix++)
-	   { if(array[ix] == i) return(false); }
-	   return(true);
-        }
-
 	// Address is selected from code, data, stack and heap sections of the working
 	// set - this to improve locality of reference
 	public int selectAddressPrc()
@@ -391,7 +581,7 @@ class Process
 	//******************************************************************
 	public void allocateFrames()
 	{
-	    numAllocatedFrames = 5;
+	    numAllocatedFrames = InitialFrames;
 	    allocatedFrames = null;  // no frames allocated yet
 	    framePtr = 0;  // point to the first entry - not used until allocateFrames is filled
 	    	               // This is to support FIFO replacement algorithm
@@ -403,32 +593,88 @@ class Process
 class Kernel
 {
 	public int numFrames;
-	public int [] freeList;
-	public Process processExecuting;	// executing process
-	public Kaction action ;				// Action to be taken - set to:
-					//  ACCESSING - in the middle of accessing memory
-					//  MEMACESS - next action is to access memory no page fault
-					//  PAGEFAULT - next action is to access memory with page fault
+	public int [] freeList;	// frames are shared by all cores
+	public Core [] cores;	// processors - each with its executing process and ready queue
 	double timeLastFault;		// time of last page fault.
 	PagingAlgorithm pagingAlgorithm;
+	Prefetcher prefetcher;	// prefetcher used on page faults - null for none
+	PageScan pageScan;	// primitive array scans for LRU and COUNT - null for the page table loops
+	// For WSCLOCK and CLOCK2
+	int scanBudget;		// maximum number of frames examined by the hand per fault
+	double wsTau;		// WSCLOCK: working set window (memory references of the process)
+	int handSpread;		// CLOCK2: number of frames between the two hands
+	long [] handMoves;	// histogram - handMoves[i] is the number of faults where the hand moved i times
+	SharedMemory sharing;	// shared pages between processes - null for none
+	CompressedSwap swapTier;	// compressed pool of replaced pages - null for none
+	NumaMemory numa;	// memory nodes with their own free lists - null for a single node
+	SampledEviction sampler;	// SAMPLEDLRU and SAMPLEDLFU - sample and pool sizes
 
 	public Kernel(int numFrames, PagingAlgorithm pgAlg)
+	{
+	   this(numFrames, pgAlg, 1);
+	}
+
+	public Kernel(int numFrames, PagingAlgorithm pgAlg, int numCores)
 	{
 	   int i;
 	   pagingAlgorithm = pgAlg;
+	   prefetcher = null;
+	   pageScan = null;
+	   sharing = null;
+	   swapTier = null;
+	   numa = null;
+	   sampler = null;
+	   scanBudget = 16;
+	   wsTau = 20;
+	   handSpread = 2;
+	   handMoves = new long[scanBudget+1];
 	   timeLastFault = 0;
-	   action = Kaction.PAGEFAULT;
+	   cores = new Core[numCores];
+	   for(i=0 ; i<numCores ; i++) cores[i] = new Core(i);
 	   this.numFrames = numFrames;
 	   freeList = new int [numFrames];
 	   for(i=0 ; i<numFrames ; i++) freeList[i] = i;
 	}
 
+	// Called each time vpage was loaded in a frame of prc (page fault or prefetch)
+	public void pageLoaded(int vpage, Process prc)
+	{
+	    if(prefetcher != null) prefetcher.pageLoaded(vpage, prc, this);  // before a migration moves the page
+	    if(numa != null) numa.pageLoaded(vpage, prc);
+	    if(sharing != null) sharing.pageLoaded(vpage, prc);
+	    if(swapTier != null) swapTier.pageLoaded(vpage, prc);
+	    PageColumns.loaded(prc, vpage);  // after a migration changed its frame
+	}
+
+	// Adds the number of hand moves of a fault to the histogram
+	public void recordHandMoves(int moves)
+	{
+	    if(handMoves.length < scanBudget+1)  // budget was changed
+	       handMoves = Arrays.copyOf(handMoves, scanBudget+1);
+	    handMoves[Math.min(moves, handMoves.length-1)]++;
+	}
+
+	// Number of frames in the free list(s)
+	public int numFreeFrames()
+	{
+	    int n = 0;
+	    int i;
+	    if(numa != null)
+	    {
+	        for(i=0 ; i<numa.numNodes ; i++) n += numa.numFree(i);
+	        return(n);
+	    }
+	    if(freeList == null) return(0);
+	    return(freeList.length);
+	}
+
 	public int getNextFreeFrame()
 	{
             int [] fl;
 	    int freeFrame;
 	    int i;
 
+	    if(numa != null) return(numa.getFreeFrame());  // free list of a node
 	    if(freeList == null) return(-1); // list is empty return -1
 	    freeFrame = freeList[0]; // gets next free frame
 	    // Update the freeList (removes the head)
@@ -448,6 +694,7 @@ class Kernel
  	    int [] fl;  // to create new free list
 	    int i;
 
+	    if(numa != null) { numa.returnFrame(fr); return; }  // free list of its node
 	    // Update the freeList (removes the head)
 	    if(freeList == null)
 	    {
@@ -463,6 +710,73 @@ class Kernel
 	    }
 	}
 
+	// Frames of prc are returned to the free list(s) and none of its pages
+	// stays in memory (pages are clean - no write back). The pages go to
+	// the disk, not to the compressed swap pool. Prefetched pages not used
+	// yet are wasted. The process gets back its initial number of frames.
+	public void releaseFrames(Process prc)
+	{
+	    int i;
+	    if(prc.allocatedFrames != null)
+	    {
+	        for(i=0 ; i<prc.allocatedFrames.length ; i++)
+	        {
+	            if(swapTier != null) swapTier.releaseFrame(prc.allocatedFrames[i]);
+	            returnFrame2FreeList(prc.allocatedFrames[i]);
+	        }
+	    }
+	    for(i=0 ; i<prc.numPages ; i++)
+	    {
+	        if(prc.pageTable[i].prefetched && prefetcher != null) prefetcher.wasted(prc.pageTable[i]);
+	        prc.pageTable[i].prefetched = false;
+	        prc.pageTable[i].valid = false;
+	    }
+	    prc.allocateFrames();
+	    prc.slotPage = null;
+	    prc.evictPool = null;
+	    if(prc.columns != null) prc.columns.flush(prc);  // keeps the counts
+	    prc.columns = null;
+	}
+}
+
+// A processor of the kernel
+class Core
+{
+	int id;
+	public Process processExecuting;	// executing process
+	public Kaction action ;				// Action to be taken - set to:
+					//  ACCESSING - in the middle of accessing memory
+					//  MEMACESS - next action is to access memory no page fault
+					//  PAGEFAULT - next action is to access memory with page fault
+					//  IDLE - no process to execute
+	ConcurrentLinkedQueue <Process> readyQueue;   	// process ready queue of this core
+	long numSteals;		// processes taken from the ready queues of other cores
+	double idleTime;	// time spent IDLE (up to idleSince if IDLE)
+	double idleSince;	// time the core became IDLE
+
+	public Core(int id)
+	{
+	   this.id = id;
+	   action = Kaction.IDLE;
+	   readyQueue = new ConcurrentLinkedQueue<Process>();
+	   numSteals = 0;
+	   idleTime = 0;
+	   idleSince = 0;
+	}
+
+	// Total time spent IDLE up to clock
+	public double idleTime(double clock)
+	{
+	   if(action == Kaction.IDLE) return(idleTime+clock-idleSince);
+	   return(idleTime);
+	}
+
+	// Adds a process to the ready queue - the process now belongs to this core
+	public void addProcess(Process prc)
+	{
+	   prc.core = this;
+	   readyQueue.add(prc);
+	}
 }
 
 class Seeds
@@ -481,6 +795,7 @@ class Seeds
 	int bernprc2;   // process 2 random number generator
 	int bernprc3;   // process 3 random number generator
 	int bernprc4;   // process 4 random number generator
+	RandomMode mode;  // how random variates are generated from the seeds (COLT by default)
 
 	public Seeds(int sd1,int sd2, int sd3, int sd4, int sd5, int sd6,
 	             int sd7,int sd8, int sd9, int sd10, int sd11, int sd12,
@@ -500,5 +815,6 @@ class Seeds
 	    bernprc2=sd12;
 	    bernprc3=sd13;
 	    bernprc4=sd14;
+	    mode=RandomMode.COLT;
 	}
 }
@@ -0,0 +1,45 @@
+// File: MultiCoreExp.java
+// Description:
+//    Simulation of memory management system - machines with several cores
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class MultiCoreExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       int [] numCores = { 1, 2, 4 };
+       int i, c;
+       long steals;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<numCores.length ; i++)
+       {
+           System.out.println("Running simulation using LRU with "+numCores[i]+" cores");
+           mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds,numCores[i]);
+           mmng.runSimulation();
+           mmng.computeOutput();
+           steals = 0;
+           for(c=0 ; c<mmng.kernel.cores.length ; c++) steals += mmng.kernel.cores[c].numSteals;
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           System.out.println("Number of processes stolen between cores: "+steals);
+           System.out.println();
+       }
+   }
+}
@@ -0,0 +1,63 @@
+// File: NumaExp.java
+// Description:
+//    Simulation of memory management system - two memory nodes (one per
+//    socket of a dual socket machine with 2 cores), frame placement policies
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class NumaExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       NumaMemory numa;
+       NumaPolicy [] policies = { null, NumaPolicy.INTERLEAVE, NumaPolicy.FIRST_TOUCH,
+                                  NumaPolicy.MIGRATE, NumaPolicy.MIGRATE };
+       int i, c;
+       long steals;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<policies.length ; i++)
+       {
+           mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds,2);
+           numa = null;
+           if(policies[i] == null) System.out.println("Running simulation using LRU with 2 cores and a single node");
+           else
+           {
+               numa = new NumaMemory(mmng.kernel, 2, policies[i], 2.0);  // remote access twice as long
+               numa.preferLocal = (i == policies.length-1);
+               System.out.println("Running simulation using LRU with 2 cores and 2 nodes - "+policies[i]+
+                                  (numa.preferLocal ? " (local victims preferred)" : ""));
+           }
+           mmng.runSimulation();
+           mmng.computeOutput();
+           steals = 0;
+           for(c=0 ; c<mmng.kernel.cores.length ; c++) steals += mmng.kernel.cores[c].numSteals;
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           System.out.println("Number of processes stolen between cores: "+steals);
+           if(numa != null)
+           {
+               System.out.println("Remote accesses: "+numa.numRemote+" ("+numa.remoteFraction()+")");
+               System.out.println("Migrations on faults: "+numa.numMigrations+" on accesses: "+numa.numCopies+
+                                  " Fallbacks: "+numa.numFallbacks+
+                                  " Free frames per node: "+numa.numFree(0)+" "+numa.numFree(1));
+           }
+           System.out.println();
+       }
+   }
+}
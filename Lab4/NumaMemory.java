@@ -0,0 +1,183 @@
+// File: NumaMemory.java
+// Description:
+//    Multi-node (NUMA) memory. The frames are divided in numNodes blocks
+//    of consecutive frames, one per node, and the cores in numNodes groups
+//    of consecutive cores. Each node has its own free list. An access to a
+//    frame of the node of the core takes MemTime, an access to a frame of
+//    another node takes MemTime*remoteFactor.
+//    Placement policies (for the frames taken from the free lists):
+//      FIRST_TOUCH - frame of the node of the core running the faulting process
+//      INTERLEAVE  - frames taken from the nodes in turn
+//      MIGRATE     - as FIRST_TOUCH and the pages follow the process: on a
+//                    fault, a page loaded in a frame of another node (the
+//                    process moved to a core of another node) is loaded in a
+//                    free frame of the local node instead, and a resident page
+//                    accessed in a frame of another node is copied to a free
+//                    frame of the local node (the access takes CopyTime more)
+//                    once its remote accesses cost as much as the copy.
+//                    The frame of the other node is freed. Without free frames
+//                    in the local node, the page stays where it is.
+//    With preferLocal set, LRU replaces the least recently used page among
+//    the pages in local frames unless it is more than localSlack time units
+//    younger than the least recently used page. Only LRU prefers local
+//    victims (the other algorithms ignore preferLocal), and the LRU of
+//    preferLocal scans the page table: it is used instead of the columns
+//    of kernel.pageScan when both are set.
+import java.util.*;
+
+enum NumaPolicy { FIRST_TOUCH, INTERLEAVE, MIGRATE };
+
+class NumaMemory
+{
+	int numNodes;
+	NumaPolicy policy;
+	double remoteFactor;	// remote access time / local access time
+	boolean preferLocal;	// LRU prefers victims in local frames
+	double localSlack;	// see above
+	ArrayDeque<Integer> [] freeLists;	// free frames of each node
+	Kernel krn;
+	int requestNode;	// node of the core of the process being serviced (set by setRequester)
+	int nextNode;		// next node for INTERLEAVE
+	int [][] remoteRefs;	// remote accesses of each page since it was loaded or moved (by process index)
+
+	// Statistics
+	long numLocal;		// memory accesses to frames of the local node
+	long numRemote;		// memory accesses to frames of other nodes
+	long numFallbacks;	// frames taken from another node since the node wanted had none
+	long numMigrations;	// pages moved to a frame of the local node on a fault
+	long numCopies;		// resident pages copied to a frame of the local node on an access
+
+	// Takes over the free list of the kernel (frames already taken stay where
+	// they are) and attaches itself to the kernel
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public NumaMemory(Kernel krn, int numNodes, NumaPolicy policy, double remoteFactor)
+	{
+	   int i;
+	   this.krn = krn;
+	   this.numNodes = numNodes;
+	   this.policy = policy;
+	   this.remoteFactor = remoteFactor;
+	   preferLocal = false;
+	   localSlack = 200;
+	   requestNode = 0;
+	   nextNode = 0;
+	   freeLists = new ArrayDeque[numNodes];
+	   for(i=0 ; i<numNodes ; i++) freeLists[i] = new ArrayDeque<Integer>();
+	   if(krn.freeList != null)
+	      for(i=0 ; i<krn.freeList.length ; i++) freeLists[frameNode(krn.freeList[i])].add(krn.freeList[i]);
+	   krn.freeList = null;
+	   krn.numa = this;
+	}
+
+	public int frameNode(int frame) { return(frame*numNodes/krn.numFrames); }
+
+	public int coreNode(Core core) { return(core.id*numNodes/krn.cores.length); }
+
+	// Called before the frames of a fault of prc are taken
+	public void setRequester(Process prc)
+	{
+	    requestNode = coreNode(prc.core);
+	}
+
+	// Kernel.getNextFreeFrame - returns -1 if no frame is free
+	public int getFreeFrame()
+	{
+	    int node = (policy == NumaPolicy.INTERLEAVE) ? nextNode : requestNode;
+	    int i;
+
+	    for(i=0 ; i<numNodes ; i++)
+	    {
+	        int n = (node+i)%numNodes;
+	        if(!freeLists[n].isEmpty())
+	        {
+	            if(policy == NumaPolicy.INTERLEAVE) nextNode = (n+1)%numNodes;
+	            else if(i != 0) numFallbacks++;
+	            return(freeLists[n].poll());
+	        }
+	    }
+	    return(-1);
+	}
+
+	// Kernel.returnFrame2FreeList
+	public void returnFrame(int frame)
+	{
+	    freeLists[frameNode(frame)].add(frame);
+	}
+
+	// Time of an access by the process executing on core to its current page.
+	// MIGRATE copies a page of another node to the local node (copyTime).
+	public double accessTime(Core core, double memTime, double copyTime)
+	{
+	    Process prc = core.processExecuting;
+	    int node = coreNode(core);
+	    if(frameNode(prc.pageTable[prc.vpage].frameNum) == node)
+	    {
+	        numLocal++;
+	        return(memTime);
+	    }
+	    if(policy == NumaPolicy.MIGRATE && remoteAccess(prc)*(remoteFactor-1)*memTime >= copyTime &&
+	       migrate(prc.vpage, prc, node))
+	    {
+	        numCopies++;
+	        remoteRefs[prc.index][prc.vpage] = 0;
+	        numLocal++;
+	        return(copyTime+memTime);
+	    }
+	    numRemote++;
+	    return(memTime*remoteFactor);
+	}
+
+	// Called after vpage was loaded in a frame of prc: MIGRATE moves it to
+	// a free frame of the local node
+	public void pageLoaded(int vpage, Process prc)
+	{
+	    if(remoteRefs != null && prc.index < remoteRefs.length && remoteRefs[prc.index] != null)
+	        remoteRefs[prc.index][vpage] = 0;
+	    if(migrate(vpage, prc, coreNode(prc.core))) numMigrations++;
+	}
+
+	// Counts a remote access to the current page of prc - returns the remote
+	// accesses to the page since it was loaded or moved
+	private int remoteAccess(Process prc)
+	{
+	    if(remoteRefs == null || prc.index >= remoteRefs.length)
+	        remoteRefs = Arrays.copyOf(remoteRefs == null ? new int[0][] : remoteRefs, prc.index+1);
+	    if(remoteRefs[prc.index] == null) remoteRefs[prc.index] = new int[prc.numPages];
+	    return(++remoteRefs[prc.index][prc.vpage]);
+	}
+
+	// MIGRATE: moves vpage of prc to a free frame of node - false if it was
+	// not moved. Frames tracked by the shared pages or the compressed swap
+	// tier are not moved.
+	private boolean migrate(int vpage, Process prc, int node)
+	{
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    int frame = pte.frameNum;
+	    int i;
+
+	    if(policy != NumaPolicy.MIGRATE || krn.sharing != null || krn.swapTier != null) return(false);
+	    if(!pte.valid || pte.borrowed || frameNode(frame) == node || freeLists[node].isEmpty()) return(false);
+	    for(i=0 ; i<prc.allocatedFrames.length ; i++)
+	    {
+	        if(prc.allocatedFrames[i] == frame)
+	        {
+	            prc.allocatedFrames[i] = freeLists[node].poll();
+	            pte.frameNum = prc.allocatedFrames[i];
+	            returnFrame(frame);
+	            if(krn.prefetcher != null) krn.prefetcher.pageLoaded(vpage, prc, krn);  // frame of the page changed
+	            return(true);
+	        }
+	    }
+	    return(false);
+	}
+
+	// Fraction of the memory accesses to frames of other nodes
+	public double remoteFraction()
+	{
+	    if(numLocal+numRemote == 0) return(0.0);
+	    return((double)numRemote/(numLocal+numRemote));
+	}
+
+	// Number of free frames of a node
+	public int numFree(int node) { return(freeLists[node].size()); }
+}
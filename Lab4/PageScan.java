@@ -0,0 +1,203 @@
+// File: PageScan.java
+// Description:
+//    Page table scans used by the LRU and COUNT replacement algorithms,
+//    written over primitive arrays (one array per page table field) so
+//    that they can be vectorized. PageScan.create() returns the version
+//    using the JDK Vector API (VectorPageScan - compiled and run with
+//    --add-modules jdk.incubator.vector) when it is available and the
+//    scalar version otherwise. Both give exactly the same results.
+
+abstract class PageScan
+{
+	// Index of the first smallest value in a[0..n-1] (-1 if n is 0)
+	abstract int argMin(double [] a, int n);
+
+	// Index of the first smallest value in a[0..n-1] among the entries
+	// with valid set (-1 if none)
+	abstract int argMinMasked(long [] a, boolean [] valid, int n);
+
+	// COUNT aging: for valid entries, count is halved, boost is added
+	// if used is set, and used is cleared
+	abstract void decayAndBoost(long [] count, boolean [] used, boolean [] valid, int n, long boost);
+
+	public static PageScan create()
+	{
+	    try
+	    {
+	        return((PageScan) Class.forName("VectorPageScan").getDeclaredConstructor().newInstance());
+	    }
+	    catch(Exception e) { }        // not compiled
+	    catch(LinkageError e) { }     // jdk.incubator.vector module not added
+	    return(new ScalarPageScan());
+	}
+}
+
+class ScalarPageScan extends PageScan
+{
+	int argMin(double [] a, int n)
+	{
+	    int min = -1;
+	    int i;
+	    for(i=0 ; i<n ; i++)
+	        if(min == -1 || a[i] < a[min]) min = i;
+	    return(min);
+	}
+
+	int argMinMasked(long [] a, boolean [] valid, int n)
+	{
+	    int min = -1;
+	    int i;
+	    for(i=0 ; i<n ; i++)
+	        if(valid[i] && (min == -1 || a[i] < a[min])) min = i;
+	    return(min);
+	}
+
+	void decayAndBoost(long [] count, boolean [] used, boolean [] valid, int n, long boost)
+	{
+	    int i;
+	    for(i=0 ; i<n ; i++)
+	    {
+	        if(!valid[i]) continue;
+	        count[i] >>= 1;
+	        if(used[i]) { count[i] += boost; used[i] = false; }
+	    }
+	}
+}
+
+// Column copy of the fields of a page table used by the scans
+// (allocated once per process, when the first replacement uses them).
+// While a process has columns they hold its counts and used bits: the
+// references update the columns (referenced, setUsed, setCount) and
+// COUNT ages them in place. The count and used fields of the page table
+// are out of date until flush() writes them back (before the columns
+// are dropped or the page table is saved).
+// The valid bits and time stamps follow the page table: the pages
+// loaded or evicted are marked and sync() copies only the marked
+// entries. Entries of the pages not in frames of the process (the
+// candidates for replacement) are not valid, with tmStamp set to
+// +infinity (never selected by argMin).
+class PageColumns
+{
+	double [] tmStamp;
+	long [] count;
+	boolean [] used;
+	boolean [] valid;
+	int [] slotOf;		// slot in allocatedFrames of each valid page
+	int [] dirty;		// pages marked since the last sync
+	boolean [] isDirty;
+	int numDirty;
+	boolean loadAll;	// copy the whole page table at the next sync
+
+	public PageColumns(int numPages)
+	{
+	   tmStamp = new double[numPages];
+	   count = new long[numPages];
+	   used = new boolean[numPages];
+	   valid = new boolean[numPages];
+	   slotOf = new int[numPages];
+	   dirty = new int[numPages];
+	   isDirty = new boolean[numPages];
+	   numDirty = 0;
+	   loadAll = true;
+	}
+
+	// The valid bit (or borrowed bit) of page in the page table of prc
+	// changed (nothing to do when the process has no columns)
+	public static void mark(Process prc, int page)
+	{
+	    PageColumns c = prc.columns;
+	    if(c == null || c.isDirty[page]) return;
+	    c.isDirty[page] = true;
+	    c.dirty[c.numDirty++] = page;
+	}
+
+	// page was loaded in the frame at index slot of allocatedFrames (KernelFunctions.replaceSlot)
+	public static void loaded(Process prc, int page, int slot)
+	{
+	    if(prc.columns == null) return;
+	    prc.columns.slotOf[page] = slot;
+	    mark(prc, page);
+	}
+
+	// page was loaded in a frame of prc (Kernel.pageLoaded). Frames added
+	// to the process are at the end of allocatedFrames.
+	public static void loaded(Process prc, int page)
+	{
+	    PageColumns c = prc.columns;
+	    PgTblEntry pte = prc.pageTable[page];
+	    int i;
+	    if(c == null) return;
+	    mark(prc, page);
+	    if(!pte.valid || pte.borrowed) return;  // not in a frame of prc
+	    i = prc.allocatedFrames.length-1;
+	    if(prc.allocatedFrames[c.slotOf[page]] == pte.frameNum) i = c.slotOf[page];  // replaceSlot
+	    else while(i > 0 && prc.allocatedFrames[i] != pte.frameNum) i--;
+	    c.slotOf[page] = i;
+	}
+
+	// Reference to page at time clock (KernelFunctions.doneMemAccess)
+	public static void referenced(Process prc, int page, double clock)
+	{
+	    PageColumns c = prc.columns;
+	    if(c == null) return;
+	    c.used[page] = true;
+	    c.count[page]++;
+	    if(c.valid[page]) c.tmStamp[page] = clock;  // pages loaded since the last sync get it from the page table
+	}
+
+	public static void setUsed(Process prc, int page, boolean used)
+	{
+	    if(prc.columns != null) prc.columns.used[page] = used;
+	}
+
+	public static void setCount(Process prc, int page, long count)
+	{
+	    if(prc.columns != null) prc.columns.count[page] = count;
+	}
+
+	// Brings the valid bits and time stamps up to date with the page table of prc
+	public void sync(Process prc)
+	{
+	    int i;
+	    if(loadAll)
+	    {
+	        for(i=0 ; i<prc.numPages ; i++)
+	        {
+	            load(prc.pageTable[i], i);
+	            count[i] = prc.pageTable[i].count;
+	            used[i] = prc.pageTable[i].used;
+	        }
+	        for(i=0 ; i<prc.allocatedFrames.length ; i++)
+	        {
+	            int p = KernelFunctions.slotPage(prc, i);
+	            if(p != -1) slotOf[p] = i;
+	        }
+	        loadAll = false;
+	    }
+	    else
+	    {
+	        for(i=0 ; i<numDirty ; i++) load(prc.pageTable[dirty[i]], dirty[i]);
+	    }
+	    for(i=0 ; i<numDirty ; i++) isDirty[dirty[i]] = false;
+	    numDirty = 0;
+	}
+
+	// Borrowed pages are in frames of other processes and are not replaced
+	private void load(PgTblEntry pte, int i)
+	{
+	    valid[i] = pte.valid && !pte.borrowed;
+	    tmStamp[i] = valid[i] ? pte.tmStamp : Double.POSITIVE_INFINITY;
+	}
+
+	// Writes the counts and used bits back to the page table of prc
+	public void flush(Process prc)
+	{
+	    int i;
+	    if(loadAll) return;  // never synced - the page table is up to date
+	    for(i=0 ; i<prc.numPages ; i++)
+	    {
+	        prc.pageTable[i].count = count[i];
+	        prc.pageTable[i].used = used[i];
+	    }
+	}
+}
@@ -0,0 +1,65 @@
+// File: ParallelExp.java
+// Description:
+//    Simulation of memory management system - large system of 16 nodes
+//    (4 processes and 32 frames each, alternately 1 and 2 cores) simulated
+//    in parallel, processes moving from busy nodes to idle ones. The same
+//    system is run on one thread (same results) and without moves.
+
+import java.io.*;
+import java.nio.file.*;
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class ParallelExp
+{
+   public static void main(String[] args) throws IOException
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       int numGroups = 16;
+       int [] threads = { Runtime.getRuntime().availableProcessors(), 1, Runtime.getRuntime().availableProcessors() };
+       int [] balance = { 10, 10, 0 };  // pairing of the nodes every 10 windows - 0 for no moves
+       int [] cores = new int[numGroups];  // cores of each node
+       Seeds [] sds;
+       ParallelMemManage pmm;
+       Path dir = Files.createTempDirectory("phiTimeBtwFaults");  // sample set files of the nodes
+       long t;
+       int g, i;
+
+       for(g=0 ; g<numGroups ; g++) cores[g] = 1+g%2;
+       for(i=0 ; i<threads.length ; i++)
+       {
+           // Lets get a set of uncorrelated seeds for each node (same for every run)
+           RandomSeedGenerator rsg = new RandomSeedGenerator();
+           sds = new Seeds[numGroups];
+           for(g=0 ; g<numGroups ; g++)
+           {
+               sds[g] = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+           }
+
+           System.out.println("Running simulation using LRU: "+numGroups+" nodes on "+threads[i]+" threads"+
+                              (balance[i] == 0 ? ", no moves between nodes" : ""));
+           t = System.nanoTime();
+           pmm = new ParallelMemManage(PagingAlgorithm.LRU,startTime,endTime,sds,cores,threads[i],1000,balance[i],
+                                       dir.resolve("phiTimeBtwFaults").toString());
+           pmm.runSimulation();
+           pmm.computeOutput();
+           t = System.nanoTime()-t;
+           System.out.println("Number of faults: "+pmm.numFaults);
+           System.out.println("Number memory accesses (no faults): "+pmm.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+pmm.numPer1000);
+           System.out.println("Core idle time: "+pmm.idleFraction);
+           System.out.println("Processes moved between nodes: "+pmm.numMigrations);
+           System.out.println("Number of windows: "+pmm.numWindows+" Run time (ms): "+t/1000000);
+           System.out.println();
+       }
+       for(g=0 ; g<numGroups ; g++) Files.deleteIfExists(dir.resolve("phiTimeBtwFaults"+g));
+       Files.delete(dir);
+   }
+}
@@ -0,0 +1,213 @@
+// File: ParallelMemManage.java
+// Description:
+//    Conservative parallel simulation of a large system made of nodes.
+//    Each node (group) is a MemManage model with its own FEL, Kernel
+//    (cores, frames, free list) and processes, executed on a thread of a
+//    pool. The nodes interact by moving processes: a node whose cores are
+//    busy sends a process to a node whose cores are often idle. A process
+//    leaves its node at the end of a page fault and arrives at the other
+//    node migrationTime later (its pages are not resident there - it
+//    faults again). migrationTime is the lookahead of the model: a node
+//    cannot affect another one sooner. It is never smaller than FaultTime.
+//    The nodes advance together in windows of migrationTime: no node
+//    starts window k+1 before all nodes finished window k. At the barrier
+//    the processes that left a node during window k are scheduled as
+//    arrival events in the FEL of their destination; they arrive at or
+//    after the end of window k, so no node receives an event in its past.
+//    Every balanceWindows windows the nodes are paired by the idle time
+//    of their cores over the last windows (busiest with most idle, and so
+//    on) and each donor sends the next process ending a fault when the
+//    difference is above MinImbalance and the destination has frames for
+//    it. The exchanges only depend on the barriers, so the results do
+//    not depend on the number of threads.
+import java.util.*;
+import java.util.concurrent.*;
+
+class ParallelMemManage
+{
+	MemManage [] groups;	// one model per node
+	double startTime;
+	double endTime;
+	double migrationTime;	// time to move a process between nodes - lookahead and window
+	int balanceWindows;	// windows between two pairings of the nodes - 0 for no migration
+	int numThreads;
+	final double MinImbalance = 0.2;	// difference of idle time fraction to move a process
+	int [] sendTo;		// destination of the process sent by each node (-1 for none)
+	int [] numSent;		// processes sent to each node
+	double [] idleAtBalance;	// idle time of the cores of each node at the last pairing
+	long numWindows;	// number of windows executed
+	long numMigrations;	// processes moved between nodes
+
+	// Output (aggregated over the nodes)
+	long numFaults;
+	long numMemAccesses;
+	long numPer1000;
+	double idleFraction;	// fraction of the time the cores were idle
+
+	public ParallelMemManage(PagingAlgorithm pgAlg, double t0time, double tftime, Seeds [] sds,
+	                         int [] numCores, int numThreads, double migrationTime, int balanceWindows,
+	                         String phiFilePrefix)
+	{
+	   int g;
+	   groups = new MemManage[sds.length];
+	   for(g=0 ; g<sds.length ; g++)
+	   {
+	      groups[g] = new MemManage(pgAlg, t0time, tftime, sds[g], numCores[g], phiFilePrefix+g);
+	      groups[g].outbox = new ArrayList<Migration>();
+	   }
+	   if(migrationTime < lookahead()) migrationTime = lookahead();
+	   startTime = t0time;
+	   endTime = tftime;
+	   this.migrationTime = migrationTime;
+	   this.balanceWindows = balanceWindows;
+	   this.numThreads = numThreads;
+	   sendTo = new int[groups.length];
+	   Arrays.fill(sendTo, -1);
+	   numSent = new int[groups.length];
+	   idleAtBalance = new double[groups.length];
+	   numWindows = 0;
+	   numMigrations = 0;
+	}
+
+	// Smallest lookahead allowed - a process is away from the cores at least for a fault
+	public double lookahead() { return(groups[0].FaultTime); }
+
+	public void runSimulation()
+	{
+	    ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+	    ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+	    double t = startTime;
+	    int g;
+
+	    try
+	    {
+	       while(t < endTime)
+	       {
+	          final double tEnd = Math.min(t+migrationTime, endTime);
+	          tasks.clear();
+	          for(g=0 ; g<groups.length ; g++)
+	          {
+	             final MemManage grp = groups[g];
+	             tasks.add(new Callable<Object>() {
+	                public Object call()
+	                {
+	                   grp.setTimef(tEnd);   // stop event at the end of the window
+	                   grp.runSimulation();
+	                   return(null);
+	                }
+	             });
+	          }
+	          for(Future<Object> f : pool.invokeAll(tasks)) f.get();  // barrier
+	          numWindows++;
+	          exchange(tEnd);
+	          t = tEnd;
+	       }
+	    }
+	    catch(InterruptedException e)
+	    {
+	       System.out.println("Parallel simulation interrupted");
+	       Thread.currentThread().interrupt();
+	    }
+	    catch(ExecutionException e)
+	    {
+	       System.out.println("Error in simulation of a node - "+e.getCause());
+	    }
+	    finally
+	    {
+	       pool.shutdown();
+	    }
+	}
+
+	// At the barrier ending at time tEnd: delivers the processes that left
+	// the nodes during the window and pairs the nodes again
+	private void exchange(double tEnd)
+	{
+	    int g;
+	    for(g=0 ; g<groups.length ; g++)
+	    {
+	        MemManage grp = groups[g];
+	        for(Migration m : grp.outbox)
+	        {
+	            MemManage dest = groups[sendTo[g]];
+	            dest.addEventNotice(dest.ArriveProcess, m.time+migrationTime, m.prc);  // not before tEnd
+	            numMigrations++;
+	        }
+	        grp.outbox.clear();
+	        if(grp.migrateOne) numSent[sendTo[g]]--;  // no process ended a fault - nothing sent
+	        grp.migrateOne = false;
+	        sendTo[g] = -1;
+	    }
+	    if(balanceWindows > 0 && numWindows%balanceWindows == 0 && tEnd < endTime) pair(tEnd);
+	}
+
+	// Pairs the nodes by the fraction of the time their cores were idle
+	// since the last pairing
+	private void pair(double tEnd)
+	{
+	    Integer [] order = new Integer[groups.length];
+	    final double [] idle = new double[groups.length];
+	    double now;
+	    int g, i, j;
+
+	    for(g=0 ; g<groups.length ; g++)
+	    {
+	        now = 0;
+	        for(i=0 ; i<groups[g].kernel.cores.length ; i++) now += groups[g].kernel.cores[i].idleTime(tEnd);
+	        idle[g] = (now-idleAtBalance[g])/(groups[g].kernel.cores.length*balanceWindows*migrationTime);
+	        idleAtBalance[g] = now;
+	        order[g] = g;
+	    }
+	    Arrays.sort(order, new Comparator<Integer>() {
+	        public int compare(Integer a, Integer b) { return(Double.compare(idle[a], idle[b])); }
+	    });
+	    for(i=0, j=groups.length-1 ; i<j ; i++, j--)
+	    {
+	        int donor = order[i], dest = order[j];
+	        if(idle[dest]-idle[donor] <= MinImbalance) break;
+	        if(groups[donor].processes.length < 2 || freeFrames(dest) < Process.InitialFrames)
+	            continue;
+	        groups[donor].migrateOne = true;
+	        sendTo[donor] = dest;
+	        numSent[dest]++;
+	    }
+	}
+
+	// Frames of node g not allocated to its processes (nor to the processes on their way to it)
+	private int freeFrames(int g)
+	{
+	    int n = groups[g].NumFrames;
+	    int i;
+	    for(i=0 ; i<groups[g].processes.length ; i++) n -= groups[g].processes[i].numAllocatedFrames;
+	    n -= (numSent[g]-groups[g].numArrivals)*Process.InitialFrames;  // frames of a process after a move
+	    return(n);
+	}
+
+	public void computeOutput()
+	{
+	    double idle = 0;
+	    int numCores = 0;
+	    int g, c;
+	    numFaults = 0;
+	    numMemAccesses = 0;
+	    for(g=0 ; g<groups.length ; g++)
+	    {
+	       groups[g].computeOutput();
+	       numFaults += groups[g].phiTimeBtwFaults.number;
+	       numMemAccesses += groups[g].numMemAccesses;
+	       for(c=0 ; c<groups[g].kernel.cores.length ; c++)
+	          idle += groups[g].kernel.cores[c].idleTime(endTime);
+	       numCores += groups[g].kernel.cores.length;
+	    }
+	    numPer1000 = (numFaults*1000)/(numMemAccesses+numFaults);
+	    idleFraction = idle/(numCores*(endTime-startTime));
+	}
+}
+
+// A process that left a node (ParallelMemManage) at time
+class Migration
+{
+	Process prc;
+	double time;
+
+	public Migration(Process prc, double time) { this.prc = prc; this.time = time; }
+}
@@ -0,0 +1,58 @@
+// File: PrefetchExp.java
+// Description:
+//    Simulation of memory management system - comparing prefetchers
+//    with LRU and COUNT
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class PrefetchExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       Prefetcher [] pf;
+       String [] names = { "none", "sequential", "stride", "segment" };
+       PagingAlgorithm [] algs = { PagingAlgorithm.LRU, PagingAlgorithm.COUNT };
+       int a, i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       // Same seeds for every run so that the runs can be compared
+       for(a=0 ; a<algs.length ; a++)
+       {
+         pf = new Prefetcher[] { null, new SequentialPrefetcher(2),
+                                 new StridePrefetcher(2), new SegmentPrefetcher(2) };
+         for(i=0 ; i<names.length ; i++)
+         {
+           System.out.println("Running simulation using "+algs[a]+" with prefetcher: "+names[i]);
+           mmng = new MemManage(algs[a],startTime,endTime,sds);
+           mmng.kernel.prefetcher = pf[i];
+           mmng.runSimulation();
+           mmng.computeOutput();
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           if(pf[i] != null)
+           {
+               System.out.println("Pages prefetched: "+pf[i].numIssued+
+                                  " useful: "+pf[i].numUseful+
+                                  " wasted: "+pf[i].numWasted);
+               System.out.println("Accuracy: "+pf[i].accuracy()+" Coverage: "+pf[i].coverage());
+           }
+           System.out.println();
+         }
+       }
+   }
+}
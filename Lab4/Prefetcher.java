@@ -0,0 +1,241 @@
+// File: Prefetcher.java
+// Description:
+//    Prefetching of additional pages when a page fault is serviced.
+//    The extra pages are brought in with the same I/O as the faulting
+//    page (i.e. no additional FaultTime). A prefetched page starts as if
+//    it had been referenced once (used bit set, time stamp and reference
+//    time of the fault) so that the replacement algorithms do not evict it
+//    before the process gets to it.
+//    Each prefetcher measures its own accuracy over its recent outcomes
+//    (prefetched pages used or wasted) and only prefetches while it is at
+//    least MinAccuracy; below, it probes with one page once in a while.
+
+// Base class for all prefetchers - subclasses only define predict()
+abstract class Prefetcher
+{
+	int maxDegree;		// maximum number of pages prefetched per fault
+	int degree;		// current number of pages prefetched per fault (0 when gated off)
+	double recentAccuracy;	// fraction of the recent prefetched pages used (moving average)
+	int [] candidates;	// pages predicted (reused at each fault)
+	int faultsAtZero;	// faults since degree dropped to 0 (for probing)
+	Process [] frameProcess;	// process whose page was last loaded in each frame (to find evicted pages)
+	int [] framePage;		// page last loaded in each frame
+	final int ProbeInterval = 256;  // faults before trying again when throttled to 0
+	final double MinAccuracy = 0.2;	// recent accuracy needed to prefetch
+	final double AccuracyWeight = 1.0/32;	// weight of an outcome in recentAccuracy (about the last 32 pages)
+
+	// Counters
+	long numIssued;		// pages prefetched
+	long numUseful;		// prefetched pages referenced before eviction
+	long numWasted;		// prefetched pages evicted without being referenced
+	long numDemandFaults;	// faults seen by the prefetcher
+
+	public Prefetcher(int maxDegree)
+	{
+	   this.maxDegree = maxDegree;
+	   degree = maxDegree;
+	   recentAccuracy = 1.0;  // trusted until measured
+	   candidates = new int[maxDegree];
+	   faultsAtZero = 0;
+	}
+
+	// Fills candidates with up to max pages to prefetch following a fault on vpage
+	// returns the number of pages placed in candidates
+	abstract int predict(int vpage, Process prc, int max);
+
+	// Called once the faulting page has been loaded
+	public void prefetch(int vpage, Process prc, Kernel krn, double clock)
+	{
+	    int n;	// number of candidates
+	    int max;	// number of pages that may be prefetched
+	    int i;
+
+	    numDemandFaults++;
+	    // Protect the page just loaded from being replaced by the prefetched pages
+	    prc.pageTable[vpage].used = true;
+	    prc.pageTable[vpage].tmStamp = clock;
+	    PageColumns.setUsed(prc, vpage, true);
+
+	    max = degree;
+	    if(max == 0)
+	    {  // throttled - probe with one page once in a while
+	       if(++faultsAtZero < ProbeInterval) return;
+	       faultsAtZero = 0;
+	       max = 1;
+	    }
+	    // Never prefetch more pages than can stay resident with the faulting page
+	    if(max > prc.numAllocatedFrames-1) max = prc.numAllocatedFrames-1;
+	    if(max <= 0) return;
+
+	    n = predict(vpage, prc, max);
+	    for(i=0 ; i<n ; i++)
+	    {
+	        int pg = candidates[i];
+	        if(pg < 0 || pg >= prc.numPages || pg == vpage) continue;
+	        if(prc.pageTable[pg].valid) continue;
+	        if(krn.sharing != null && krn.sharing.mapIfResident(pg, prc)) continue;  // shared - no I/O needed
+	        KernelFunctions.pageReplacement(pg, prc, krn);
+	        if(!prc.pageTable[pg].valid) continue;  // could not load
+	        krn.pageLoaded(pg, prc);
+	        prc.pageTable[pg].prefetched = true;
+	        // Starts as if referenced once (not counted in the references of the process)
+	        prc.pageTable[pg].used = true;
+	        prc.pageTable[pg].tmStamp = clock;
+	        prc.pageTable[pg].lastRef = prc.virtualTime;
+	        PageColumns.setUsed(prc, pg, true);
+	        numIssued++;
+	    }
+	}
+
+	// Called on a reference to a page that was prefetched
+	public void prefetchHit(Process prc, int vpage)
+	{
+	    prc.pageTable[vpage].prefetched = false;
+	    numUseful++;
+	    outcome(true);
+	}
+
+	// Called when a fault on vpage starts to be serviced (before the page is
+	// loaded): a prefetched page faulted on was evicted without being used.
+	public void demandFault(int vpage, Process prc)
+	{
+	    if(prc.pageTable[vpage].prefetched && !prc.pageTable[vpage].valid) wasted(prc.pageTable[vpage]);
+	}
+
+	// Called each time vpage was loaded in a frame of prc (Kernel.pageLoaded):
+	// the page previously loaded in the frame was evicted - wasted if it was
+	// prefetched and not used.
+	public void pageLoaded(int vpage, Process prc, Kernel krn)
+	{
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    int frame = pte.frameNum;
+	    Process old;
+
+	    if(!pte.valid || pte.borrowed) return;
+	    if(frameProcess == null)
+	    {
+	        frameProcess = new Process[krn.numFrames];
+	        framePage = new int[krn.numFrames];
+	    }
+	    old = frameProcess[frame];
+	    if(old != null && old.pageTable[framePage[frame]].prefetched && !old.pageTable[framePage[frame]].valid)
+	        wasted(old.pageTable[framePage[frame]]);
+	    frameProcess[frame] = prc;
+	    framePage[frame] = vpage;
+	}
+
+	// A prefetched page was evicted without being used
+	public void wasted(PgTblEntry pte)
+	{
+	    pte.prefetched = false;
+	    numWasted++;
+	    outcome(false);
+	}
+
+	// Updates the recent accuracy with a prefetched page used or wasted and
+	// gates the prefetcher on it
+	private void outcome(boolean used)
+	{
+	    recentAccuracy += ((used ? 1.0 : 0.0)-recentAccuracy)*AccuracyWeight;
+	    degree = (recentAccuracy >= MinAccuracy) ? maxDegree : 0;
+	}
+
+	// Fraction of prefetched pages that were used
+	public double accuracy()
+	{
+	    if(numIssued == 0) return(0.0);
+	    return((double)numUseful/numIssued);
+	}
+
+	// Fraction of the misses (demand faults + prefetch hits) removed by prefetching
+	public double coverage()
+	{
+	    if(numUseful+numDemandFaults == 0) return(0.0);
+	    return((double)numUseful/(numUseful+numDemandFaults));
+	}
+
+	// First and last pages of the segment containing vpage
+	static int segmentStart(int vpage, Process prc)
+	{
+	    if(vpage < prc.numCodePages) return(0);
+	    if(vpage < prc.numCodePages+prc.numDataPages) return(prc.numCodePages);
+	    if(vpage < prc.numCodePages+prc.numDataPages+prc.numStackPages)
+	        return(prc.numCodePages+prc.numDataPages);
+	    return(prc.numCodePages+prc.numDataPages+prc.numStackPages);
+	}
+
+	static int segmentEnd(int vpage, Process prc)
+	{
+	    if(vpage < prc.numCodePages) return(prc.numCodePages-1);
+	    if(vpage < prc.numCodePages+prc.numDataPages) return(prc.numCodePages+prc.numDataPages-1);
+	    if(vpage < prc.numCodePages+prc.numDataPages+prc.numStackPages)
+	        return(prc.numCodePages+prc.numDataPages+prc.numStackPages-1);
+	    return(prc.numPages-1);
+	}
+}
+
+// Prefetches the pages following the faulting page in the same segment
+class SequentialPrefetcher extends Prefetcher
+{
+	public SequentialPrefetcher(int maxDegree) { super(maxDegree); }
+
+	int predict(int vpage, Process prc, int max)
+	{
+	    int end = segmentEnd(vpage, prc);
+	    int n = 0;
+	    int pg;
+	    for(pg=vpage+1 ; pg<=end && n<max ; pg++) candidates[n++] = pg;
+	    return(n);
+	}
+}
+
+// Detects a constant stride between the faults of a process
+class StridePrefetcher extends Prefetcher
+{
+	public StridePrefetcher(int maxDegree) { super(maxDegree); }
+
+	int predict(int vpage, Process prc, int max)
+	{
+	    int stride = vpage - prc.lastFaultPage;
+	    boolean confirmed = (stride != 0) && (stride == prc.lastFaultStride);
+	    int start, end;
+	    int n = 0;
+	    int pg;
+
+	    prc.lastFaultStride = stride;
+	    prc.lastFaultPage = vpage;
+	    if(!confirmed) return(0);
+	    start = segmentStart(vpage, prc);
+	    end = segmentEnd(vpage, prc);
+	    for(pg=vpage+stride ; pg>=start && pg<=end && n<max ; pg+=stride) candidates[n++] = pg;
+	    return(n);
+	}
+}
+
+// Uses the working set segments: selectAddressPrc cycles through code, data,
+// stack and heap, so prefetch the non resident pages of the working set
+// segments that will be referenced next.
+class SegmentPrefetcher extends Prefetcher
+{
+	public SegmentPrefetcher(int maxDegree) { super(maxDegree); }
+
+	int predict(int vpage, Process prc, int max)
+	{
+	    int seg = prc.wsSegments[4];  // next segment to address
+	    int s;
+	    int ix;
+	    int n = 0;
+
+	    for(s=0 ; s<4 && n<max ; s++, seg=(seg+1)%4)
+	    {
+	        int start = (seg == 0) ? 0 : prc.wsSegments[seg-1]+1;
+	        int end = prc.wsSegments[seg];
+	        for(ix=start ; ix<=end && n<max ; ix++)
+	        {
+	            int pg = prc.workingSet[ix];
+	            if(pg != vpage && !prc.pageTable[pg].valid) candidates[n++] = pg;
+	        }
+	    }
+	    return(n);
+	}
+}
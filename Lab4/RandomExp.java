@@ -0,0 +1,48 @@
+// File: RandomExp.java
+// Description:
+//    Simulation of memory management system - compares the Colt random
+//    variates with the fast samplers (results should agree statistically)
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class RandomExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       RandomMode [] modes = { RandomMode.COLT, RandomMode.FAST };
+       long t;
+       int i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<modes.length ; i++)
+       {
+           sds.mode = modes[i];
+           System.out.println("Running simulation using LRU with random variates: "+modes[i]);
+           t = System.nanoTime();
+           mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds);
+           mmng.runSimulation();
+           mmng.computeOutput();
+           t = System.nanoTime()-t;
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           System.out.println("Mean time between faults: "+mmng.phiTimeBtwFaults.mean);
+           System.out.println("Run time (ms): "+t/1000000);
+           System.out.println();
+       }
+   }
+}
@@ -0,0 +1,226 @@
+// File: RandomVariates.java
+// Description:
+//    Random variate generators used by the process reference model.
+//    Two modes are provided:
+//      COLT - the original Colt distributions (same streams as before,
+//             used for validation)
+//      FAST - specialized samplers built on a SplitMix64 generator.
+//             The Bernoulli is a single compare against a threshold,
+//             the uniform uses a multiply-shift (no division) and the
+//             Poisson uses a cached inverse CDF table with a guide table
+//             since the means are fixed for a run.
+import java.util.concurrent.*;
+import cern.jet.random.engine.*;
+import cern.jet.random.*;
+
+enum RandomMode { COLT, FAST };  // Random variate generation used by the model
+
+// Splittable 64 bit generator (SplitMix64)
+class SplitMix64 implements java.io.Serializable
+{
+	private static final long serialVersionUID = 1L;  // fixed so that checkpoint files stay readable after a recompile
+	long state;
+
+	public SplitMix64(long seed)
+	{ state = seed; }
+
+	public long nextLong()
+	{
+	    long z = (state += 0x9E3779B97F4A7C15L);
+	    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+	    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+	    return(z ^ (z >>> 31));
+	}
+
+	// uniform in [0,1) with 53 bits
+	public double nextDouble()
+	{ return((nextLong() >>> 11) * 0x1.0p-53); }
+
+	// uniform in [0,bound) - Lemire's multiply-shift with rejection of the biased values
+	public int nextInt(int bound)
+	{
+	    long m = (nextLong() >>> 32) * bound;
+	    long low = m & 0xFFFFFFFFL;
+	    if(low < bound)
+	    {
+	        long threshold = (0x100000000L - bound) % bound;
+	        while(low < threshold)
+	        {
+	            m = (nextLong() >>> 32) * bound;
+	            low = m & 0xFFFFFFFFL;
+	        }
+	    }
+	    return((int)(m >>> 32));
+	}
+
+	// new independent generator
+	public SplitMix64 split()
+	{ return(new SplitMix64(nextLong())); }
+}
+
+//--------------------------------------------------------------
+// Uniform integers
+abstract class UniformRV implements java.io.Serializable
+{
+	private static final long serialVersionUID = 1L;
+	abstract int nextIntFromTo(int from, int to);
+
+	static UniformRV create(RandomMode mode, int seed)
+	{
+	    if(mode == RandomMode.FAST) return(new FastUniformRV(seed));
+	    return(new ColtUniformRV(seed));
+	}
+}
+
+class ColtUniformRV extends UniformRV
+{
+	private static final long serialVersionUID = 1L;
+	Uniform uniform;
+	public ColtUniformRV(int seed) { uniform = new Uniform(new MersenneTwister(seed)); }
+	int nextIntFromTo(int from, int to) { return(uniform.nextIntFromTo(from,to)); }
+}
+
+class FastUniformRV extends UniformRV
+{
+	private static final long serialVersionUID = 1L;
+	SplitMix64 rng;
+	public FastUniformRV(int seed) { rng = new SplitMix64(seed); }
+	int nextIntFromTo(int from, int to)
+	{
+	    if(to <= from) return(from);  // as Colt does for an empty range
+	    return(from + rng.nextInt(to-from+1));
+	}
+}
+
+//--------------------------------------------------------------
+// Bernoulli (0 or 1)
+abstract class BernoulliRV implements java.io.Serializable
+{
+	private static final long serialVersionUID = 1L;
+	abstract int nextInt();
+
+	static BernoulliRV create(RandomMode mode, double p, int seed)
+	{
+	    if(mode == RandomMode.FAST) return(new FastBernoulliRV(p,seed));
+	    return(new ColtBernoulliRV(p,seed));
+	}
+}
+
+class ColtBernoulliRV extends BernoulliRV
+{
+	private static final long serialVersionUID = 1L;
+	Binomial binomial;
+	public ColtBernoulliRV(double p, int seed) { binomial = new Binomial(1,p,new MersenneTwister(seed)); }
+	int nextInt() { return(binomial.nextInt()); }
+}
+
+class FastBernoulliRV extends BernoulliRV
+{
+	private static final long serialVersionUID = 1L;
+	SplitMix64 rng;
+	long threshold;  // 1 when the top 53 bits are below the threshold
+	public FastBernoulliRV(double p, int seed)
+	{
+	    rng = new SplitMix64(seed);
+	    threshold = (long)(p * (1L << 53));
+	}
+	int nextInt() { return(((rng.nextLong() >>> 11) < threshold) ? 1 : 0); }
+}
+
+//--------------------------------------------------------------
+// Poisson
+abstract class PoissonRV implements java.io.Serializable
+{
+	private static final long serialVersionUID = 1L;
+	abstract int nextInt();
+
+	static PoissonRV create(RandomMode mode, double mean, int seed)
+	{
+	    if(mode == RandomMode.FAST) return(new FastPoissonRV(mean,seed));
+	    return(new ColtPoissonRV(mean,seed));
+	}
+}
+
+class ColtPoissonRV extends PoissonRV
+{
+	private static final long serialVersionUID = 1L;
+	Poisson poisson;
+	public ColtPoissonRV(double mean, int seed) { poisson = new Poisson(mean,new MersenneTwister(seed)); }
+	int nextInt() { return(poisson.nextInt()); }
+}
+
+class FastPoissonRV extends PoissonRV
+{
+	private static final long serialVersionUID = 1L;
+	SplitMix64 rng;
+	PoissonTable table;
+
+	public FastPoissonRV(double mean, int seed)
+	{
+	    rng = new SplitMix64(seed);
+	    table = PoissonTable.get(mean);
+	}
+
+	int nextInt()
+	{
+	    double u = rng.nextDouble();
+	    int i = table.guide[(int)(u*table.guide.length)];
+	    while(i < table.cdf.length-1 && table.cdf[i] <= u) i++;
+	    return(table.first+i);
+	}
+}
+
+// Inverse CDF of a Poisson distribution, shared by all generators with the same mean
+class PoissonTable implements java.io.Serializable
+{
+	private static final long serialVersionUID = 1L;
+	static ConcurrentHashMap<Double,PoissonTable> tables = new ConcurrentHashMap<Double,PoissonTable>();
+
+	int first;	// value of cdf[0]
+	double [] cdf;	// cdf[i] = P(X <= first+i)
+	int [] guide;	// guide[j] = first i with cdf[i] > j/guide.length
+
+	static PoissonTable get(double mean)
+	{
+	    PoissonTable t = tables.get(mean);
+	    if(t == null)
+	    {
+	        t = new PoissonTable(mean);
+	        tables.putIfAbsent(mean,t);
+	    }
+	    return(t);
+	}
+
+	private PoissonTable(double mean)
+	{
+	    // Cover mean +/- 12 standard deviations - the remaining mass is negligible
+	    double sd = Math.sqrt(mean);
+	    int last = (int)Math.ceil(mean+12*sd+12);
+	    double logp;  // log of P(X = k)
+	    double sum;
+	    int i, j, k;
+
+	    first = (int)Math.max(0,Math.floor(mean-12*sd-12));
+	    cdf = new double[last-first+1];
+	    // log P(X = first) computed in log space to avoid underflow for large means
+	    logp = -mean;
+	    for(k=1 ; k<=first ; k++) logp += Math.log(mean/k);
+	    sum = 0;
+	    for(i=0 ; i<cdf.length ; i++)
+	    {
+	        sum += Math.exp(logp);
+	        cdf[i] = sum;
+	        logp += Math.log(mean/(first+i+1));
+	    }
+	    for(i=0 ; i<cdf.length ; i++) cdf[i] /= sum;  // normalize the truncated tail
+	    cdf[cdf.length-1] = 1.0;
+
+	    guide = new int[cdf.length];
+	    i = 0;
+	    for(j=0 ; j<guide.length ; j++)
+	    {
+	        while(cdf[i] <= (double)j/guide.length) i++;
+	        guide[j] = i;
+	    }
+	}
+}
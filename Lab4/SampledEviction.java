@@ -0,0 +1,142 @@
+// File: SampledEviction.java
+// Description:
+//    Sampled approximations of LRU and LFU (as in Redis). Instead of
+//    scanning the page table, sampleSize frames of the process are chosen
+//    at random and the page with the oldest time stamp (SAMPLEDLRU) or the
+//    smallest count (SAMPLEDLFU) is replaced. With poolSize > 0 the best
+//    candidates seen are kept in a small eviction pool of the process and
+//    compete with the next samples. The cost of a replacement is
+//    O(sampleSize+poolSize) whatever the number of frames of the process.
+//    SAMPLEDLFU ages the counts of the sampled pages as COUNT does (halved,
+//    plus 128 if used) instead of the counts of all the pages.
+//    With compareExact set, each victim is compared with the page that
+//    LRU (or LFU) would have replaced - this costs a page table scan.
+
+class SampledEviction
+{
+	int sampleSize;		// frames sampled per replacement (K)
+	int poolSize;		// size of the eviction pool of each process (0 for none)
+	SplitMix64 rng;		// for sampling
+	boolean compareExact;	// count the victims that the exact algorithm would also replace
+	int [] sample;		// slots sampled (reused at each replacement)
+
+	// Statistics
+	long numEvictions;	// pages replaced
+	long numExact;		// victims as old (or with as small a count) as the exact victim
+
+	public SampledEviction(int sampleSize, int poolSize, long seed)
+	{
+	   this.sampleSize = sampleSize;
+	   this.poolSize = poolSize;
+	   rng = new SplitMix64(seed);
+	   compareExact = false;
+	   sample = new int[sampleSize];
+	}
+
+	// Replaces a page of prc by vpage (all frames of prc are used)
+	public void replace(int vpage, Process prc, boolean lfu)
+	{
+	    int slot = selectSlot(prc, lfu);
+	    if(compareExact)
+	    {
+	        if(key(prc, slot, lfu) <= exactKey(prc, lfu)) numExact++;
+	    }
+	    numEvictions++;
+	    KernelFunctions.replaceSlot(vpage, prc, slot);
+	    if(lfu) prc.pageTable[vpage].count = 0;  // reset count for new page
+	}
+
+	// Slot of allocatedFrames of the page to replace
+	private int selectSlot(Process prc, boolean lfu)
+	{
+	    int n = prc.allocatedFrames.length;
+	    int k = Math.min(sampleSize, n);
+	    int best = -1;
+	    int i, j;
+
+	    if(sample.length < k) sample = new int[k];
+	    for(i=0 ; i<k ; i++)
+	        sample[i] = (k == n) ? i : rng.nextInt(n);  // every frame when K covers them all
+	    if(lfu)  // aging of the sampled pages
+	    {
+	        for(i=0 ; i<k ; i++)
+	        {
+	            PgTblEntry pte = prc.pageTable[KernelFunctions.slotPage(prc, sample[i])];
+	            pte.count >>= 1;
+	            if(pte.used) { pte.count += 128; pte.used = false; }
+	        }
+	    }
+	    if(poolSize == 0)
+	    {
+	        for(i=0 ; i<k ; i++)
+	            if(best == -1 || key(prc, sample[i], lfu) < key(prc, best, lfu)) best = sample[i];
+	        return(best);
+	    }
+
+	    // Eviction pool: slots sorted by key (keys are read again since pages were referenced)
+	    if(prc.evictPool == null || prc.evictPool.length != poolSize)
+	    {
+	        prc.evictPool = new int[poolSize];
+	        prc.evictPoolLen = 0;
+	    }
+	    sortPool(prc, lfu);
+	    for(i=0 ; i<k ; i++) addToPool(prc, sample[i], lfu);
+	    best = prc.evictPool[0];
+	    for(j=1 ; j<prc.evictPoolLen ; j++) prc.evictPool[j-1] = prc.evictPool[j];
+	    prc.evictPoolLen--;
+	    return(best);
+	}
+
+	// Insertion sort of the pool on the current keys
+	private void sortPool(Process prc, boolean lfu)
+	{
+	    int [] pool = prc.evictPool;
+	    int i, j, s;
+	    for(i=1 ; i<prc.evictPoolLen ; i++)
+	    {
+	        s = pool[i];
+	        for(j=i ; j>0 && key(prc, pool[j-1], lfu) > key(prc, s, lfu) ; j--) pool[j] = pool[j-1];
+	        pool[j] = s;
+	    }
+	}
+
+	// Inserts slot in the sorted pool (the largest key is dropped when full)
+	private void addToPool(Process prc, int slot, boolean lfu)
+	{
+	    int [] pool = prc.evictPool;
+	    int i, j;
+	    for(i=0 ; i<prc.evictPoolLen ; i++) if(pool[i] == slot) return;  // already in the pool
+	    for(i=0 ; i<prc.evictPoolLen && key(prc, pool[i], lfu) <= key(prc, slot, lfu) ; i++) ;
+	    if(i == poolSize) return;  // worse than all candidates of a full pool
+	    if(prc.evictPoolLen < poolSize) prc.evictPoolLen++;
+	    for(j=prc.evictPoolLen-1 ; j>i ; j--) pool[j] = pool[j-1];
+	    pool[i] = slot;
+	}
+
+	// Time stamp (LRU) or count (LFU) of the page in the frame at slot
+	private static double key(Process prc, int slot, boolean lfu)
+	{
+	    PgTblEntry pte = prc.pageTable[KernelFunctions.slotPage(prc, slot)];
+	    return(lfu ? pte.count : pte.tmStamp);
+	}
+
+	// Smallest key of the pages in frames of the process (the exact victim)
+	private static double exactKey(Process prc, boolean lfu)
+	{
+	    double min = Double.POSITIVE_INFINITY;
+	    int i;
+	    for(i=0 ; i<prc.pageTable.length ; i++)
+	    {
+	        PgTblEntry pte = prc.pageTable[i];
+	        if(pte.valid && !pte.borrowed) min = Math.min(min, lfu ? pte.count : pte.tmStamp);
+	    }
+	    return(min);
+	}
+
+	// Fraction of the victims that the exact algorithm would also replace
+	public double exactRate()
+	{
+	    if(numEvictions == 0) return(0.0);
+	    return((double)numExact/numEvictions);
+	}
+}
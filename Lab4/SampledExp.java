@@ -0,0 +1,61 @@
+// File: SampledExp.java
+// Description:
+//    Simulation of memory management system - sampled approximations of
+//    LRU and LFU compared with the exact LRU
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class SampledExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       PagingAlgorithm [] algs = { PagingAlgorithm.LRU, PagingAlgorithm.SAMPLEDLRU, PagingAlgorithm.SAMPLEDLRU,
+                                   PagingAlgorithm.SAMPLEDLRU, PagingAlgorithm.SAMPLEDLRU,
+                                   PagingAlgorithm.SAMPLEDLFU, PagingAlgorithm.SAMPLEDLFU };
+       int [] sampleSize = { 0, 1, 2, 3, 2, 3, 3 };
+       int [] poolSize = { 0, 0, 0, 0, 4, 0, 4 };
+       double lruRate = 0;
+       double rate;
+       int i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<algs.length ; i++)
+       {
+           mmng = new MemManage(algs[i],startTime,endTime,sds);
+           if(algs[i] == PagingAlgorithm.LRU) System.out.println("Running simulation using LRU");
+           else
+           {
+               mmng.kernel.sampler.sampleSize = sampleSize[i];
+               mmng.kernel.sampler.poolSize = poolSize[i];
+               mmng.kernel.sampler.compareExact = true;
+               System.out.println("Running simulation using "+algs[i]+" with K = "+sampleSize[i]+
+                                  " and a pool of "+poolSize[i]);
+           }
+           mmng.runSimulation();
+           mmng.computeOutput();
+           rate = (mmng.phiTimeBtwFaults.number*1000.0)/(mmng.numMemAccesses+mmng.phiTimeBtwFaults.number);
+           if(algs[i] == PagingAlgorithm.LRU) lruRate = rate;
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+rate+" (LRU "+lruRate+
+                              ", gap "+(rate-lruRate)+")");
+           if(algs[i] != PagingAlgorithm.LRU)
+               System.out.println("Victims also chosen by the exact algorithm: "+mmng.kernel.sampler.exactRate());
+           System.out.println();
+       }
+   }
+}
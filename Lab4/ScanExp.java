@@ -0,0 +1,122 @@
+// File: ScanExp.java
+// Description:
+//    Page table scans - checks that the scan versions of LRU and COUNT
+//    replace the same pages and times the replacements (page table loop,
+//    scalar scans, vector scans) of a process with a large page table.
+//    Run with --add-modules jdk.incubator.vector to use the Vector API.
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class ScanExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       PagingAlgorithm [] algs = { PagingAlgorithm.LRU, PagingAlgorithm.COUNT };
+       PageScan scan = PageScan.create();
+       PageScan [] scans = { null, new ScalarPageScan(), scan };  // null: page table loop
+       int numPages = 1024*1024;  // entries in the large page table
+       int numFrames = numPages/4;
+       int numFaults = 200;
+       Process prc;
+       RandomEngine eng;
+       long t, sum;
+       int i, r, a, vpage;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       System.out.println("Scans used: "+scan.getClass().getName());
+       for(i=0 ; i<algs.length ; i++)
+       {
+           for(r=0 ; r<2 ; r++)
+           {
+               mmng = new MemManage(algs[i],startTime,endTime,sds);
+               if(r == 1) mmng.kernel.pageScan = scan;
+               mmng.runSimulation();
+               mmng.computeOutput();
+               System.out.println(algs[i]+(r == 1 ? " (scans)" : " (page table)")+
+                                  " faults: "+mmng.phiTimeBtwFaults.number+
+                                  " memory accesses: "+mmng.numMemAccesses);
+           }
+       }
+
+       // Replacements in a process with a large page table: the same pages
+       // are referenced and replaced by each version (same checksum)
+       for(a=0 ; a<algs.length ; a++)
+       {
+           for(r=0 ; r<scans.length ; r++)
+           {
+               prc = largeProcess(numPages, numFrames);
+               eng = new MersenneTwister(2);
+               t = 0;  // time in the replacements only
+               for(i=0 ; i<numFaults ; i++)
+               {
+                   touch(prc, eng, numFrames/8, i);
+                   do vpage = (int)(eng.raw()*numPages); while(prc.pageTable[vpage].valid);
+                   t -= System.nanoTime();
+                   if(algs[a] == PagingAlgorithm.LRU)
+                   {
+                       if(scans[r] == null) KernelFunctions.pageReplAlgorithmLRU(vpage, prc);
+                       else KernelFunctions.pageReplAlgorithmLRU(vpage, prc, scans[r]);
+                   }
+                   else if(scans[r] == null) KernelFunctions.pageReplAlgorithmCOUNT(vpage, prc);
+                   else KernelFunctions.pageReplAlgorithmCOUNT(vpage, prc, scans[r]);
+                   t += System.nanoTime();
+                   KernelFunctions.doneMemAccess(vpage, prc, i+1);
+               }
+               sum = 0;
+               for(i=0 ; i<numPages ; i++) if(prc.pageTable[i].valid) sum += i;
+               System.out.println(algs[a]+" "+(scans[r] == null ? "page table" : scans[r].getClass().getName())+
+                                  ": "+numFaults+" replacements, "+numPages+" pages, "+numFrames+
+                                  " frames (ms): "+t/1000000+" (checksum "+sum+")");
+           }
+       }
+   }
+
+   // Process with numPages pages, numFrames of them resident
+   private static Process largeProcess(int numPages, int numFrames)
+   {
+       RandomEngine eng = new MersenneTwister(1);
+       Process prc = new Process(1, 1, 1, 1, numPages-3, 1000, 1, 2, 3);
+       int i, j, p;
+
+       prc.numAllocatedFrames = numFrames;
+       prc.allocatedFrames = new int[numFrames];
+       prc.slotPage = new int[numFrames];
+       for(i=0 ; i<numFrames ; i++)  // random pages (partial shuffle of pagePool)
+       {
+           j = i+(int)(eng.raw()*(numPages-i));
+           p = prc.pagePool[j];
+           prc.pagePool[j] = prc.pagePool[i];
+           prc.pagePool[i] = p;
+           prc.allocatedFrames[i] = i;
+           prc.slotPage[i] = p;
+           prc.pageTable[p].valid = true;
+           prc.pageTable[p].frameNum = i;
+           prc.pageTable[p].tmStamp = -eng.raw();
+           prc.pageTable[p].count = eng.nextInt() & 0xFFFF;
+       }
+       return(prc);
+   }
+
+   // References n resident pages (chosen from the frames) at time tm
+   private static void touch(Process prc, RandomEngine eng, int n, int tm)
+   {
+       int i;
+       for(i=0 ; i<n ; i++)
+           KernelFunctions.doneMemAccess(KernelFunctions.slotPage(prc, (int)(eng.raw()*prc.allocatedFrames.length)),
+                                         prc, tm+eng.raw());
+   }
+}
@@ -0,0 +1,317 @@
+// File: Scheduler.java
+// Description:
+//    CPU scheduling of the ready queues. A scheduler chooses the process
+//    of the ready queue of a core that executes next (MemManage uses the
+//    FIFO order of the ready queue when no scheduler is set).
+//    Load control (setLoadControl) follows the page fault frequency of the
+//    processes. Every interval time units the fault rate of each active
+//    process over the interval is compared with two thresholds:
+//      - above maxFaultRate the process gets one more frame if a frame is
+//        free. If none is free and the process is thrashing (above
+//        ThrashFactor*maxFaultRate for ThrashChecks checks) while the
+//        processes waiting for their faults leave at most one runnable
+//        process per core, memory is overcommitted: the process of a ready queue with the highest fault
+//        rate is suspended (its frames are returned to the free list) while
+//        more processes than cores are active;
+//      - below minFaultRate the process gives back one frame (the page
+//        with the oldest time stamp is evicted), down to baseFrames;
+//      - when no active process is above maxFaultRate and baseFrames frames
+//        are free, the process suspended the longest is resumed with
+//        baseFrames frames. A process suspended for MaxWaitChecks checks is
+//        resumed anyway: the process of a ready queue with the highest fault
+//        rate is suspended in its place if baseFrames frames are not free
+//        (suspended processes do not starve).
+//    Load control cannot be used with shared pages (frames mapped by other
+//    processes are not released).
+import java.util.*;
+
+abstract class Scheduler
+{
+	MemManage mm;
+	// Load control
+	boolean loadControl;	// set by setLoadControl
+	double minFaultRate;	// faults per reference below which a process gives back a frame
+	double maxFaultRate;	// faults per reference above which a process needs more frames
+	double interval;	// time between two checks of the fault rates
+	int baseFrames;		// frames of a resumed process (and fewest frames of a process)
+	double nextCheck;	// time of the next check
+	long [] faultsAtCheck;	// faults of each process at the last check (by process index)
+	long [] refsAtCheck;	// references of each process at the last check
+	int [] checksAbove;	// consecutive checks thrashing without a free frame
+	final double ThrashFactor = 2;	// fault rate (times maxFaultRate) of a thrashing process
+	final int ThrashChecks = 3;
+	ArrayDeque<Process> suspended;	// suspended processes in suspension order
+	boolean [] isSuspended;	// by process index
+	long [] suspendedAt;	// check at which each process was suspended
+	final int MaxWaitChecks = 8;	// checks a process stays suspended at most
+	long numChecks;		// checks of the fault rates done
+
+	// Statistics
+	long numSuspends;	// processes suspended
+	long numResumes;	// processes resumed
+	long numFramesGranted;	// frames given to processes above maxFaultRate
+	long numFramesReleased;	// frames taken back from processes below minFaultRate
+
+	public Scheduler(MemManage mm)
+	{
+	   this.mm = mm;
+	   loadControl = false;
+	   suspended = new ArrayDeque<Process>();
+	   isSuspended = new boolean[mm.processes.length];
+	   suspendedAt = new long[mm.processes.length];
+	   numChecks = 0;
+	   faultsAtCheck = new long[mm.processes.length];
+	   refsAtCheck = new long[mm.processes.length];
+	   checksAbove = new int[mm.processes.length];
+	   numSuspends = 0;
+	   numResumes = 0;
+	   numFramesGranted = 0;
+	   numFramesReleased = 0;
+	}
+
+	// Process of the ready queue of core to execute (removed from the queue)
+	abstract Process pick(Core core);
+
+	// Fault rates are in faults per 1000 references
+	public void setLoadControl(double minFaultRate, double maxFaultRate, double interval)
+	{
+	    int i;
+	    if(mm.kernel.sharing != null)
+	        throw new IllegalArgumentException("Load control cannot be used with shared pages");
+	    if(minFaultRate < 0 || maxFaultRate <= minFaultRate || interval <= 0)
+	        throw new IllegalArgumentException("Load control: bad fault rates "+minFaultRate+", "+maxFaultRate+
+	                                           " or interval "+interval);
+	    loadControl = true;
+	    this.minFaultRate = minFaultRate/1000;
+	    this.maxFaultRate = maxFaultRate/1000;
+	    this.interval = interval;
+	    baseFrames = mm.processes[0].numAllocatedFrames;
+	    for(i=0 ; i<mm.processes.length ; i++)
+	    {
+	        faultsAtCheck[i] = mm.processes[i].numFaults;
+	        refsAtCheck[i] = mm.processes[i].virtualTime;
+	    }
+	    nextCheck = mm.clock+interval;
+	}
+
+	// Called by MemManage to get the next process to execute on core - null if none
+	public Process select(Core core)
+	{
+	    if(loadControl && mm.clock >= nextCheck)
+	    {
+	        checkFaultRates(core);
+	        nextCheck = mm.clock+interval;
+	    }
+	    return(pick(core));
+	}
+
+	private void checkFaultRates(Core core)
+	{
+	    double [] rate = new double[mm.processes.length];
+	    boolean needFrames = false;
+	    boolean suspendOne = false;
+	    Process prc;
+	    int i;
+
+	    numChecks++;
+
+	    for(i=0 ; i<mm.processes.length ; i++)
+	    {
+	        prc = mm.processes[i];
+	        long refs = prc.virtualTime-refsAtCheck[i];
+	        long faults = prc.numFaults-faultsAtCheck[i];
+	        rate[i] = (refs+faults == 0) ? 0.0 : (double)faults/(refs+faults);
+	        faultsAtCheck[i] = prc.numFaults;
+	        refsAtCheck[i] = prc.virtualTime;
+	    }
+	    for(i=0 ; i<mm.processes.length ; i++)
+	    {
+	        prc = mm.processes[i];
+	        if(isSuspended[i]) continue;
+	        if(rate[i] > maxFaultRate)
+	        {
+	            needFrames = true;
+	            if(framesAvailable() > 0)
+	            {
+	                prc.numAllocatedFrames++;
+	                numFramesGranted++;
+	                checksAbove[i] = 0;
+	            }
+	            else if(rate[i] <= ThrashFactor*maxFaultRate) checksAbove[i] = 0;
+	            else if(++checksAbove[i] >= ThrashChecks) suspendOne = true;
+	        }
+	        else
+	        {
+	            checksAbove[i] = 0;
+	            if(rate[i] < minFaultRate && prc.numAllocatedFrames > baseFrames) releaseFrame(prc);
+	        }
+	    }
+	    if(suspendOne && active() > mm.kernel.cores.length && active()-mm.ioQueue.size() <= mm.kernel.cores.length)
+	    {
+	        prc = mostFaulting(rate);
+	        if(prc != null) suspend(prc);
+	    }
+	    else if(!suspended.isEmpty() && numChecks-suspendedAt[suspended.peek().index] >= MaxWaitChecks)
+	    {
+	        // Waited too long - swapped with the process faulting the most
+	        if(framesAvailable() < baseFrames && (prc = mostFaulting(rate)) != null) suspend(prc);
+	        if(framesAvailable() >= baseFrames) resume(core);
+	    }
+	    else if(!needFrames && !suspended.isEmpty() && framesAvailable() >= baseFrames) resume(core);
+	}
+
+	// The process suspended the longest is resumed on core with baseFrames frames
+	private void resume(Core core)
+	{
+	    Process prc = suspended.poll();
+	    isSuspended[prc.index] = false;
+	    prc.numAllocatedFrames = baseFrames;
+	    faultsAtCheck[prc.index] = prc.numFaults;
+	    refsAtCheck[prc.index] = prc.virtualTime;
+	    checksAbove[prc.index] = 0;
+	    core.addProcess(prc);
+	    numResumes++;
+	}
+
+	private int active() { return(mm.processes.length-suspended.size()); }
+
+	// Free frames not yet promised to a process (numAllocatedFrames above its frames)
+	private int framesAvailable()
+	{
+	    int n = mm.kernel.numFreeFrames();
+	    int i;
+	    for(i=0 ; i<mm.processes.length ; i++)
+	    {
+	        Process prc = mm.processes[i];
+	        if(isSuspended[i]) continue;
+	        n -= prc.numAllocatedFrames-(prc.allocatedFrames == null ? 0 : prc.allocatedFrames.length);
+	    }
+	    return(n);
+	}
+
+	// Process of a ready queue with the highest fault rate - null if the ready queues are empty
+	private Process mostFaulting(double [] rate)
+	{
+	    Process sel = null;
+	    int c;
+	    for(c=0 ; c<mm.kernel.cores.length ; c++)
+	        for(Process prc : mm.kernel.cores[c].readyQueue)
+	            if(sel == null || rate[prc.index] > rate[sel.index]) sel = prc;
+	    return(sel);
+	}
+
+	// Takes one frame back from prc: the page with the oldest time stamp
+	// (not the page being accessed) is evicted - clean, no write back - and
+	// its frame is returned to the free list
+	private void releaseFrame(Process prc)
+	{
+	    int n = (prc.allocatedFrames == null) ? 0 : prc.allocatedFrames.length;
+	    int victim = -1;
+	    int i, p;
+
+	    prc.numAllocatedFrames--;
+	    numFramesReleased++;
+	    if(n <= prc.numAllocatedFrames) return;  // the frame was not taken yet
+	    for(i=0 ; i<n ; i++)
+	    {
+	        p = KernelFunctions.slotPage(prc, i);
+	        if(p == -1 || p == prc.vpage) continue;
+	        if(victim == -1 || prc.pageTable[p].tmStamp < prc.pageTable[KernelFunctions.slotPage(prc, victim)].tmStamp)
+	            victim = i;
+	    }
+	    if(victim == -1) { prc.numAllocatedFrames++; numFramesReleased--; return; }
+	    p = KernelFunctions.slotPage(prc, victim);
+	    if(prc.pageTable[p].prefetched && mm.kernel.prefetcher != null) mm.kernel.prefetcher.wasted(prc.pageTable[p]);
+	    prc.pageTable[p].prefetched = false;
+	    prc.pageTable[p].valid = false;
+	    if(mm.kernel.swapTier != null) mm.kernel.swapTier.releaseFrame(prc.allocatedFrames[victim]);
+	    mm.kernel.returnFrame2FreeList(prc.allocatedFrames[victim]);
+	    KernelFunctions.removeSlot(prc, victim);
+	}
+
+	// prc leaves its ready queue and its frames are returned to the free
+	// list (Kernel.releaseFrames)
+	private void suspend(Process prc)
+	{
+	    prc.core.readyQueue.remove(prc);
+	    mm.kernel.releaseFrames(prc);
+	    suspended.add(prc);
+	    isSuspended[prc.index] = true;
+	    suspendedAt[prc.index] = numChecks;
+	    numSuspends++;
+	}
+}
+
+// Ready queue order (as without scheduler, plus load control)
+class FifoScheduler extends Scheduler
+{
+	public FifoScheduler(MemManage mm) { super(mm); }
+
+	Process pick(Core core) { return(core.readyQueue.poll()); }
+}
+
+// Prefers the processes whose next page is resident. The next page of a
+// process of the ready queue is selected ahead (lookahead - kept in
+// vpageFromFault, the page accessed first when it executes). With
+// issueEarly set, the fault of a process whose next page is not resident
+// is started at once (the process goes to the IO queue) so that it
+// overlaps with the execution of the resident processes. A process
+// waits at most maxSkips selections in the ready queue.
+class ResidentFirstScheduler extends Scheduler
+{
+	boolean issueEarly;	// start the faults of the processes seen ahead
+	int maxSkips;		// selections a process may wait
+	int [] skips;		// selections waited, by process index
+
+	// Statistics
+	long numResident;	// processes selected with their next page resident
+	long numEarlyFaults;	// faults started ahead
+
+	public ResidentFirstScheduler(MemManage mm, boolean issueEarly)
+	{
+	   super(mm);
+	   this.issueEarly = issueEarly;
+	   maxSkips = 4;
+	   skips = new int[mm.processes.length];
+	}
+
+	Process pick(Core core)
+	{
+	    Iterator<Process> it = core.readyQueue.iterator();
+	    Process sel = null;
+	    Process prc;
+
+	    while(it.hasNext())
+	    {
+	        prc = it.next();
+	        if(sel == null && skips[prc.index] >= maxSkips)
+	        {  // waited enough
+	            sel = prc;
+	            continue;
+	        }
+	        if(prc.vpageFromFault == -1) prc.vpageFromFault = mm.selectAddress(prc);  // lookahead
+	        if(prc.pageTable[prc.vpageFromFault].valid)
+	        {
+	            if(sel == null) { sel = prc; numResident++; }
+	        }
+	        else if(issueEarly)
+	        {
+	            it.remove();
+	            prc.vpage = prc.vpageFromFault;
+	            if(mm.nextAction(prc.vpage, prc) == Kaction.PAGEFAULT)
+	            {
+	                mm.startFault(prc);
+	                numEarlyFaults++;
+	                continue;
+	            }
+	            core.readyQueue.add(prc);  // shared page mapped - it is resident now (seen again at the end)
+	        }
+	    }
+	    if(sel == null) sel = core.readyQueue.peek();  // none resident - ready queue order
+	    if(sel == null) return(null);
+	    core.readyQueue.remove(sel);
+	    for(Process p : core.readyQueue) skips[p.index]++;  // still waiting
+	    skips[sel.index] = 0;
+	    return(sel);
+	}
+}
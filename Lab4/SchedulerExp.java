@@ -0,0 +1,67 @@
+// File: SchedulerExp.java
+// Description:
+//    Simulation of memory management system - fault aware scheduling of
+//    the ready queues and load control
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class SchedulerExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       String [] names = { "FIFO", "resident first", "resident first, faults started ahead",
+                           "FIFO, load control", "resident first, faults started ahead, load control" };
+       int [] numCores = { 1, 2 };
+       int i, n, c;
+       double idle;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(n=0 ; n<numCores.length ; n++)
+       {
+           for(i=0 ; i<names.length ; i++)
+           {
+               System.out.println("Running simulation using LRU with "+numCores[n]+" cores - "+names[i]);
+               mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds,numCores[n]);
+               switch(i)
+               {
+                 case 1: mmng.scheduler = new ResidentFirstScheduler(mmng, false); break;
+                 case 2: mmng.scheduler = new ResidentFirstScheduler(mmng, true); break;
+                 case 3: mmng.scheduler = new FifoScheduler(mmng); break;
+                 case 4: mmng.scheduler = new ResidentFirstScheduler(mmng, true); break;
+               }
+               if(i >= 3) mmng.scheduler.setLoadControl(10, 30, 10000);  // 10 to 30 faults per 1000 references, checked every 10 ms
+               mmng.runSimulation();
+               mmng.computeOutput();
+               idle = 0;
+               for(c=0 ; c<mmng.kernel.cores.length ; c++) idle += mmng.kernel.cores[c].idleTime(mmng.clock);
+               System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+               System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+               System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+               System.out.println("Memory accesses per simulated second: "+mmng.numMemAccesses/((endTime-startTime)/1000000));
+               System.out.println("Core idle time: "+idle/(mmng.kernel.cores.length*(endTime-startTime)));
+               if(mmng.scheduler instanceof ResidentFirstScheduler)
+                   System.out.println("Selected with next page resident: "+((ResidentFirstScheduler)mmng.scheduler).numResident+
+                                      " Faults started ahead: "+((ResidentFirstScheduler)mmng.scheduler).numEarlyFaults);
+               if(mmng.scheduler != null && mmng.scheduler.loadControl)
+                   System.out.println("Frames granted: "+mmng.scheduler.numFramesGranted+
+                                      " released: "+mmng.scheduler.numFramesReleased+
+                                      " Processes suspended: "+mmng.scheduler.numSuspends+" resumed: "+mmng.scheduler.numResumes);
+               System.out.println();
+           }
+       }
+   }
+}
@@ -0,0 +1,283 @@
+// File: SharedMemory.java
+// Description:
+//    Pages shared by several processes (e.g. processes running the same
+//    program or forked from the same parent).
+//    A shared segment maps the same pages of several processes to one
+//    frame. The process that loads a page from disk owns the frame (it is
+//    in its allocatedFrames and its replacement algorithm manages it); the
+//    other processes map it without I/O (minor fault) and without using
+//    one of their frames - their page table entries are flagged borrowed.
+//    The reverse mapping (frame -> processes mapping it) is used to unmap
+//    the page from every process when the owner replaces it. The references
+//    of the other processes count as references of the owner (time stamp,
+//    used bit and count of its page), so the owner does not replace a page
+//    the other processes keep using.
+//    Copy-on-write segments are shared until written: a write by a process
+//    mapping the page gives it a private copy (a fault taking CopyTime
+//    instead of FaultTime). A write by the owner is done in place when no
+//    other process maps the page; otherwise the frame goes to one of the
+//    processes mapping it (which becomes the owner and is allocated one
+//    more frame) and the writer gets a private copy the same way. The
+//    writer keeps its number of frames if a frame is free and gives up one
+//    otherwise (its copy replaces one of its pages) - unless it has a
+//    single frame, then the page is written in place and unmapped from
+//    the other processes.
+import java.util.*;
+
+class SharedMemory
+{
+	SharedSegment [] frameSeg;	// segment of the page in each frame (null if private)
+	int [] frameIdx;		// index in the segment of the page in each frame
+	ArrayList<Mapping> [] rmap;	// processes (other than the owner) mapping each frame
+	Mapping [] owner;		// process (and page) owning each frame of a shared page
+	Kernel krn;
+	double writeProb;		// probability that an access to a copy-on-write page is a write
+	SplitMix64 rng;			// for writes
+
+	// Statistics
+	long numMinorFaults;	// pages mapped from another process's frame (no I/O)
+	long numCowFaults;	// private copies made on writes
+	long numCowBreaks;	// writes of the owner done in place (no other process mapping the page)
+	long numOwnerCopies;	// private copies made on writes of the owner (frame left to the other processes)
+	long numUnmaps;		// mappings removed through the reverse mapping
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public SharedMemory(Kernel krn, double writeProb, long seed)
+	{
+	   int i;
+	   frameSeg = new SharedSegment[krn.numFrames];
+	   frameIdx = new int[krn.numFrames];
+	   rmap = new ArrayList[krn.numFrames];
+	   owner = new Mapping[krn.numFrames];
+	   this.krn = krn;
+	   for(i=0 ; i<krn.numFrames ; i++) rmap[i] = new ArrayList<Mapping>();
+	   this.writeProb = writeProb;
+	   rng = new SplitMix64(seed);
+	}
+
+	// Shares the code pages of the processes (same program)
+	public SharedSegment shareCode(Process [] prcs)
+	{
+	    int n = Integer.MAX_VALUE;
+	    int [] base = new int[prcs.length];
+	    int i;
+	    for(i=0 ; i<prcs.length ; i++) n = Math.min(n, prcs[i].numCodePages);
+	    return(share(prcs, base, n, false));
+	}
+
+	// Shares the data pages of the processes copy-on-write (forked processes)
+	public SharedSegment shareData(Process [] prcs)
+	{
+	    int n = Integer.MAX_VALUE;
+	    int [] base = new int[prcs.length];
+	    int i;
+	    for(i=0 ; i<prcs.length ; i++)
+	    {
+	        n = Math.min(n, prcs[i].numDataPages);
+	        base[i] = prcs[i].numCodePages;
+	    }
+	    return(share(prcs, base, n, true));
+	}
+
+	// Pages base[i]..base[i]+n-1 of prcs[i] are the pages of a new segment
+	private SharedSegment share(Process [] prcs, int [] base, int n, boolean cow)
+	{
+	    SharedSegment seg = new SharedSegment(n, cow);
+	    int i, j;
+	    for(i=0 ; i<prcs.length ; i++)
+	    {
+	        Process prc = prcs[i];
+	        if(prc.sharedSeg == null)
+	        {
+	            prc.sharedSeg = new SharedSegment[prc.numPages];
+	            prc.sharedIdx = new int[prc.numPages];
+	        }
+	        for(j=0 ; j<n ; j++)
+	        {
+	            prc.sharedSeg[base[i]+j] = seg;
+	            prc.sharedIdx[base[i]+j] = j;
+	        }
+	    }
+	    return(seg);
+	}
+
+	// Called before each access (MemManage.nextAction): maps a shared page
+	// already in memory and handles writes to copy-on-write pages.
+	public void checkAccess(int vpage, Process prc)
+	{
+	    SharedSegment seg;
+	    PgTblEntry pte = prc.pageTable[vpage];
+
+	    mapIfResident(vpage, prc);
+	    if(prc.sharedSeg == null || (seg = prc.sharedSeg[vpage]) == null) return;
+	    if(!seg.cow || !pte.valid || rng.nextDouble() >= writeProb) return;
+	    // Write to a copy-on-write page
+	    if(pte.borrowed)
+	    {  // needs its own copy
+	        rmap[pte.frameNum].remove(new Mapping(prc, vpage));
+	        pte.valid = false;
+	        pte.borrowed = false;
+	        PageColumns.mark(prc, vpage);
+	        prc.cowFault = true;
+	        numCowFaults++;
+	    }
+	    else if(rmap[pte.frameNum].isEmpty() || (krn.numFreeFrames() == 0 && prc.numAllocatedFrames <= 1))
+	    {  // owner writes in place - the frame becomes private
+	        releaseFrame(pte.frameNum);
+	        numCowBreaks++;
+	    }
+	    else
+	    {  // the other processes keep the frame, the owner needs its own copy
+	        transferOwner(pte.frameNum);
+	        if(krn.numFreeFrames() == 0) prc.numAllocatedFrames--;  // the copy replaces one of its pages
+	        pte.valid = false;
+	        PageColumns.mark(prc, vpage);
+	        prc.cowFault = true;
+	        numOwnerCopies++;
+	    }
+	    prc.sharedSeg[vpage] = null;  // page is now private to the process
+	}
+
+	// The frame of a shared page goes from its owner to the first process
+	// mapping it, which is allocated one more frame
+	private void transferOwner(int frame)
+	{
+	    Mapping old = owner[frame];
+	    Mapping m = rmap[frame].remove(0);
+	    PgTblEntry pte = m.prc.pageTable[m.vpage];
+	    int i;
+
+	    for(i=0 ; old.prc.allocatedFrames[i] != frame ; i++) ;
+	    KernelFunctions.removeSlot(old.prc, i);
+	    if(m.prc.allocatedFrames == null) m.prc.allocatedFrames = new int[1];
+	    else m.prc.allocatedFrames = Arrays.copyOf(m.prc.allocatedFrames, m.prc.allocatedFrames.length+1);
+	    m.prc.allocatedFrames[m.prc.allocatedFrames.length-1] = frame;  // slotPage is rebuilt by slotPage
+	    m.prc.numAllocatedFrames++;
+	    m.prc.evictPool = null;
+	    pte.borrowed = false;
+	    PageColumns.loaded(m.prc, m.vpage);
+	    owner[frame] = m;
+	    // before the page of the old owner is invalidated (not a wasted prefetch)
+	    if(krn.prefetcher != null) krn.prefetcher.pageLoaded(m.vpage, m.prc, krn);
+	}
+
+	// Called after each access (MemManage.endMemoryAccess): an access to a
+	// page mapped from the frame of another process is also a reference to
+	// the page of the owner (its replacement algorithm sees it)
+	public void accessed(int vpage, Process prc, double clock)
+	{
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    Mapping m;
+	    PgTblEntry opte;
+
+	    if(!pte.borrowed || (m = owner[pte.frameNum]) == null) return;
+	    opte = m.prc.pageTable[m.vpage];
+	    opte.used = true;
+	    opte.tmStamp = clock;
+	    opte.count++;
+	    opte.lastRef = m.prc.virtualTime;
+	    PageColumns.referenced(m.prc, m.vpage, clock);
+	}
+
+	// Maps vpage to the frame holding the shared page if there is one.
+	// Returns true if the page was mapped.
+	public boolean mapIfResident(int vpage, Process prc)
+	{
+	    SharedSegment seg;
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    int frame;
+
+	    if(pte.valid || prc.sharedSeg == null || (seg = prc.sharedSeg[vpage]) == null) return(false);
+	    frame = seg.frame[prc.sharedIdx[vpage]];
+	    if(frame == -1) return(false);
+	    pte.frameNum = frame;
+	    pte.valid = true;
+	    pte.borrowed = true;
+	    pte.used = false;
+	    pte.count = 0;
+	    PageColumns.setUsed(prc, vpage, false);
+	    PageColumns.setCount(prc, vpage, 0);
+	    PageColumns.mark(prc, vpage);
+	    rmap[frame].add(new Mapping(prc, vpage));
+	    numMinorFaults++;
+	    return(true);
+	}
+
+	// Called after vpage was loaded from disk in a frame of prc. The page
+	// that was in the frame is unmapped from all processes if it was shared,
+	// and the frame becomes the copy of the segment if vpage is shared.
+	public void pageLoaded(int vpage, Process prc)
+	{
+	    PgTblEntry pte = prc.pageTable[vpage];
+	    SharedSegment seg = (prc.sharedSeg == null) ? null : prc.sharedSeg[vpage];
+	    int frame = pte.frameNum;
+
+	    if(!pte.valid || pte.borrowed) return;
+	    if(frameSeg[frame] != null &&
+	       (frameSeg[frame] != seg || frameIdx[frame] != prc.sharedIdx[vpage]))
+	        releaseFrame(frame);
+	    if(seg != null && seg.frame[prc.sharedIdx[vpage]] == -1)
+	    {
+	        seg.frame[prc.sharedIdx[vpage]] = frame;
+	        owner[frame] = new Mapping(prc, vpage);
+	        frameSeg[frame] = seg;
+	        frameIdx[frame] = prc.sharedIdx[vpage];
+	    }
+	}
+
+	// The frame no longer holds the shared page: unmap it from the other processes
+	private void releaseFrame(int frame)
+	{
+	    for(Mapping m : rmap[frame])
+	    {
+	        m.prc.pageTable[m.vpage].valid = false;
+	        m.prc.pageTable[m.vpage].borrowed = false;
+	        PageColumns.mark(m.prc, m.vpage);
+	        numUnmaps++;
+	    }
+	    rmap[frame].clear();
+	    if(frameSeg[frame] != null) frameSeg[frame].frame[frameIdx[frame]] = -1;
+	    frameSeg[frame] = null;
+	    owner[frame] = null;
+	}
+
+	// Number of frames saved by sharing (pages mapped by processes not owning the frame)
+	public int framesSaved()
+	{
+	    int n = 0;
+	    int i;
+	    for(i=0 ; i<rmap.length ; i++) n += rmap[i].size();
+	    return(n);
+	}
+}
+
+// A segment shared by several processes
+class SharedSegment
+{
+	boolean cow;	// copy-on-write
+	int [] frame;	// frame holding each page of the segment (-1 if not in memory)
+
+	public SharedSegment(int numPages, boolean cow)
+	{
+	   this.cow = cow;
+	   frame = new int[numPages];
+	   Arrays.fill(frame, -1);
+	}
+}
+
+// Entry of the reverse mapping
+class Mapping
+{
+	Process prc;
+	int vpage;
+
+	public Mapping(Process prc, int vpage) { this.prc = prc; this.vpage = vpage; }
+
+	public boolean equals(Object o)
+	{
+	    if(!(o instanceof Mapping)) return(false);
+	    return(((Mapping)o).prc == prc && ((Mapping)o).vpage == vpage);
+	}
+
+	public int hashCode() { return(prc.pid*31+vpage); }
+}
@@ -0,0 +1,60 @@
+// File: SharingExp.java
+// Description:
+//    Simulation of memory management system - code pages shared by the
+//    processes and data pages shared copy-on-write (forked workers)
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class SharingExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       SharedMemory shm;
+       String [] names = { "no sharing", "shared code", "shared code and copy-on-write data" };
+       int i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<names.length ; i++)
+       {
+           System.out.println("Running simulation using LRU with "+names[i]);
+           mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds);
+           shm = null;
+           if(i > 0)
+           {
+               shm = new SharedMemory(mmng.kernel, 0.05, sds.dRand);  // 5% of the accesses are writes
+               shm.shareCode(mmng.processes);
+               if(i > 1) shm.shareData(mmng.processes);
+               mmng.kernel.sharing = shm;
+           }
+           mmng.runSimulation();
+           mmng.computeOutput();
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           if(shm != null)
+           {
+               System.out.println("Minor faults: "+shm.numMinorFaults+
+                                  " Copy-on-write faults: "+shm.numCowFaults+
+                                  " Owner writes in place: "+shm.numCowBreaks+
+                                  " copied: "+shm.numOwnerCopies+
+                                  " Unmaps: "+shm.numUnmaps);
+               System.out.println("Frames saved at end of run: "+shm.framesSaved());
+           }
+           System.out.println();
+       }
+   }
+}
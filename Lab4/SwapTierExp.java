@@ -0,0 +1,57 @@
+// File: SwapTierExp.java
+// Description:
+//    Simulation of memory management system - compressed swap tier
+//    between the frames and the disk
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class SwapTierExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       CompressedSwap swp;
+       int [] poolFrames = { 0, 2, 2, 4, 4, 8, 8 };
+       boolean [] byLastUse = { false, false, true, false, true, false, true };
+       int i;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<poolFrames.length ; i++)
+       {
+           System.out.println("Running simulation using LRU with a pool of "+poolFrames[i]+" frames"+
+                              (poolFrames[i] == 0 ? "" : (byLastUse[i] ? " - write back by last use" : " - write back FIFO")));
+           mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds);
+           swp = null;
+           if(poolFrames[i] > 0)
+           {
+               swp = new CompressedSwap(mmng.kernel, poolFrames[i], 3.0, 10, byLastUse[i]);  // 3:1 compression, 10 us
+               mmng.kernel.swapTier = swp;
+           }
+           mmng.runSimulation();
+           mmng.computeOutput();
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           if(swp != null)
+           {
+               System.out.println("Faults from pool: "+swp.numPoolFaults+" from disk: "+swp.numDiskFaults+
+                                  " (pool hit rate "+swp.poolHitRate()+")");
+               System.out.println("Pages stored: "+swp.numStores+" written back: "+swp.numWritebacks);
+           }
+           System.out.println();
+       }
+   }
+}
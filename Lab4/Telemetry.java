@@ -0,0 +1,211 @@
+// File: Telemetry.java
+// Description:
+//    Time series of the simulation in fixed buckets of simulated time:
+//    faults, memory accesses, ready queue and IO queue lengths and, for
+//    each process, faults, accesses, resident pages and working set
+//    changes. Buckets are stored in the chunks of a preallocated ring;
+//    full chunks are written to a columnar file by a writer thread so
+//    that the simulation does not wait for the disk.
+//
+//    File format (DataOutputStream):
+//      header: int magic, int version, int numProcesses, double bucketWidth,
+//              int pid of each process
+//      chunks: int numBuckets, double[numBuckets] bucket start times, then
+//              each column as int[numBuckets]: faults, accesses, ready
+//              queue length, IO queue length, then for each process:
+//              faults, accesses, resident pages, working set changes.
+//      end:    int 0
+import java.io.*;
+import java.util.concurrent.*;
+
+class Telemetry
+{
+	static final int Magic = 0x4D4D5453;  // "MMTS"
+	static final int Version = 1;
+	// Columns
+	static final int Faults = 0;
+	static final int Accesses = 1;
+	static final int ReadyLength = 2;
+	static final int IOLength = 3;
+	static final int NumGlobalCols = 4;
+	static final int PrcFaults = 0;		// per process columns (offset)
+	static final int PrcAccesses = 1;
+	static final int PrcResident = 2;
+	static final int PrcWSChanges = 3;
+	static final int NumPrcCols = 4;
+
+	MemManage mm;
+	double bucketWidth;
+	double bucketEnd;	// end of current bucket
+	int [] counts;		// counts of the current bucket, one per column (gauges set on close)
+	TelemetryChunk cur;	// chunk being filled
+	ArrayBlockingQueue<TelemetryChunk> free;	// chunks of the ring ready to be filled
+	ArrayBlockingQueue<TelemetryChunk> full;	// chunks waiting to be written
+	TelemetryChunk endMarker;
+	Thread writer;
+	DataOutputStream out;
+	volatile IOException error;	// error of the writer thread
+
+	// Statistics
+	long numBuckets;
+	long numStalls;		// times the simulation waited for a free chunk
+
+	public Telemetry(MemManage mm, double bucketWidth, int chunkSize, int numChunks, String fileName)
+	    throws IOException
+	{
+	   int np = mm.processes.length;
+	   int i;
+
+	   this.mm = mm;
+	   this.bucketWidth = bucketWidth;
+	   bucketEnd = mm.clock+bucketWidth;
+	   counts = new int[NumGlobalCols+NumPrcCols*np];
+	   free = new ArrayBlockingQueue<TelemetryChunk>(numChunks);
+	   full = new ArrayBlockingQueue<TelemetryChunk>(numChunks+1);
+	   for(i=0 ; i<numChunks ; i++) free.add(new TelemetryChunk(chunkSize, counts.length));
+	   cur = free.poll();
+	   endMarker = new TelemetryChunk(0, 0);
+
+	   out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+	   out.writeInt(Magic);
+	   out.writeInt(Version);
+	   out.writeInt(np);
+	   out.writeDouble(bucketWidth);
+	   for(i=0 ; i<np ; i++) out.writeInt(mm.processes[i].pid);
+
+	   writer = new Thread(new Runnable() { public void run() { writeChunks(); } }, "Telemetry writer");
+	   writer.setDaemon(true);
+	   writer.start();
+	}
+
+	//-----------------------------------------------------------------
+	// Called by the simulation
+	public void fault(Process prc, double clock)
+	{
+	    advance(clock);
+	    counts[Faults]++;
+	    counts[NumGlobalCols+NumPrcCols*prc.index+PrcFaults]++;
+	}
+
+	public void access(Process prc, double clock)
+	{
+	    advance(clock);
+	    counts[Accesses]++;
+	    counts[NumGlobalCols+NumPrcCols*prc.index+PrcAccesses]++;
+	}
+
+	public void workingSetChange(Process prc, double clock)
+	{
+	    advance(clock);
+	    counts[NumGlobalCols+NumPrcCols*prc.index+PrcWSChanges]++;
+	}
+
+	// Closes the buckets ending before clock. Called at the start of each
+	// event (MemManage.processEvent): the state does not change between two
+	// events, so the gauges read here are the values at the end of each bucket
+	// closed (several buckets closed at once all have the same gauges).
+	public void advance(double clock)
+	{
+	    while(clock >= bucketEnd) closeBucket();
+	}
+
+	private void closeBucket()
+	{
+	    int i, c;
+	    // Gauges - state at the end of the bucket (see advance)
+	    counts[ReadyLength] = 0;
+	    for(c=0 ; c<mm.kernel.cores.length ; c++) counts[ReadyLength] += mm.kernel.cores[c].readyQueue.size();
+	    counts[IOLength] = mm.ioQueue.size();
+	    for(i=0 ; i<mm.processes.length ; i++)
+	        counts[NumGlobalCols+NumPrcCols*i+PrcResident] = residentPages(mm.processes[i]);
+
+	    cur.time[cur.n] = bucketEnd-bucketWidth;
+	    for(c=0 ; c<counts.length ; c++)
+	    {
+	        cur.cols[c][cur.n] = counts[c];
+	        counts[c] = 0;
+	    }
+	    cur.n++;
+	    numBuckets++;
+	    bucketEnd += bucketWidth;
+	    if(cur.n == cur.time.length) nextChunk();
+	}
+
+	private static int residentPages(Process prc)
+	{
+	    int n = 0;
+	    int i;
+	    for(i=0 ; i<prc.numPages ; i++) if(prc.pageTable[i].valid) n++;
+	    return(n);
+	}
+
+	// Hands the current chunk to the writer and takes a free one
+	private void nextChunk()
+	{
+	    full.add(cur);
+	    cur = free.poll();
+	    if(cur == null)
+	    {  // writer is behind - wait
+	        numStalls++;
+	        try { cur = free.take(); }
+	        catch(InterruptedException e) { Thread.currentThread().interrupt(); }
+	    }
+	}
+
+	// Writes the last buckets and waits for the writer to finish
+	public void close(double clock) throws IOException
+	{
+	    advance(clock);
+	    if(cur.n > 0) full.add(cur);
+	    full.add(endMarker);
+	    try { writer.join(); }
+	    catch(InterruptedException e) { Thread.currentThread().interrupt(); }
+	    if(error != null) throw error;
+	}
+
+	//-----------------------------------------------------------------
+	// Writer thread
+	private void writeChunks()
+	{
+	    TelemetryChunk chk;
+	    int i, c;
+	    try
+	    {
+	        while((chk = full.take()) != endMarker)
+	        {
+	            if(error == null)
+	            {
+	                try
+	                {
+	                    out.writeInt(chk.n);
+	                    for(i=0 ; i<chk.n ; i++) out.writeDouble(chk.time[i]);
+	                    for(c=0 ; c<chk.cols.length ; c++)
+	                        for(i=0 ; i<chk.n ; i++) out.writeInt(chk.cols[c][i]);
+	                }
+	                catch(IOException e) { error = e; }
+	            }
+	            chk.n = 0;
+	            free.add(chk);
+	        }
+	        out.writeInt(0);
+	        out.close();
+	    }
+	    catch(IOException e) { if(error == null) error = e; }
+	    catch(InterruptedException e) { }
+	}
+}
+
+// Chunk of the ring: buckets stored by column
+class TelemetryChunk
+{
+	int n;		// number of buckets in the chunk
+	double [] time;	// start time of each bucket
+	int [][] cols;	// cols[column][bucket]
+
+	public TelemetryChunk(int size, int numCols)
+	{
+	   n = 0;
+	   time = new double[size];
+	   cols = new int[numCols][size];
+	}
+}
@@ -0,0 +1,64 @@
+// File: TelemetryExp.java
+// Description:
+//    Simulation of memory management system - time series of faults,
+//    accesses and queue lengths in buckets of 10 ms
+
+import java.io.*;
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class TelemetryExp
+{
+   public static void main(String[] args) throws IOException
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       DataInputStream in;
+       int np, n, i, c;
+       double width;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       System.out.println("Running simulation using LRU with telemetry");
+       mmng = new MemManage(PagingAlgorithm.LRU,startTime,endTime,sds);
+       mmng.telemetry = new Telemetry(mmng, 10000, 64, 4, "telemetry.dat");
+       mmng.runSimulation();
+       mmng.telemetry.close(mmng.clock);
+       mmng.computeOutput();
+       System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+       System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+       System.out.println("Buckets: "+mmng.telemetry.numBuckets+" Stalls: "+mmng.telemetry.numStalls);
+
+       // Read back the first chunk: faults per 1000 references and working set changes of each bucket
+       in = new DataInputStream(new BufferedInputStream(new FileInputStream("telemetry.dat")));
+       in.readInt(); in.readInt();  // magic and version
+       np = in.readInt();
+       width = in.readDouble();
+       for(i=0 ; i<np ; i++) in.readInt();
+       n = in.readInt();
+       double [] time = new double[n];
+       int [][] cols = new int[Telemetry.NumGlobalCols+Telemetry.NumPrcCols*np][n];
+       for(i=0 ; i<n ; i++) time[i] = in.readDouble();
+       for(c=0 ; c<cols.length ; c++) for(i=0 ; i<n ; i++) cols[c][i] = in.readInt();
+       in.close();
+       System.out.println("Bucket start  faults/1000  ready  io  working set changes");
+       for(i=0 ; i<Math.min(n,20) ; i++)
+       {
+           int ws = 0;
+           for(c=0 ; c<np ; c++) ws += cols[Telemetry.NumGlobalCols+Telemetry.NumPrcCols*c+Telemetry.PrcWSChanges][i];
+           int refs = cols[Telemetry.Faults][i]+cols[Telemetry.Accesses][i];
+           System.out.println(time[i]+"  "+(refs == 0 ? 0 : cols[Telemetry.Faults][i]*1000/refs)+"  "+
+                              cols[Telemetry.ReadyLength][i]+"  "+cols[Telemetry.IOLength][i]+"  "+ws);
+       }
+   }
+}
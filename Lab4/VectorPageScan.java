@@ -0,0 +1,89 @@
+// File: VectorPageScan.java
+// Description:
+//    Page table scans using the JDK Vector API (incubator module).
+//    Compile and run with --add-modules jdk.incubator.vector.
+//    Loaded by PageScan.create() - other classes do not refer to it directly.
+import jdk.incubator.vector.*;
+
+class VectorPageScan extends PageScan
+{
+	static final VectorSpecies<Double> DS = DoubleVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Long> LS = LongVector.SPECIES_PREFERRED;
+
+	public VectorPageScan() { }
+
+	int argMin(double [] a, int n)
+	{
+	    DoubleVector acc = DoubleVector.broadcast(DS, Double.POSITIVE_INFINITY);
+	    int bound = DS.loopBound(n);
+	    double min;
+	    int i;
+
+	    if(n == 0) return(-1);
+	    // Pass 1: smallest value
+	    for(i=0 ; i<bound ; i+=DS.length())
+	        acc = acc.min(DoubleVector.fromArray(DS, a, i));
+	    min = acc.reduceLanes(VectorOperators.MIN);
+	    for( ; i<n ; i++) if(a[i] < min) min = a[i];
+	    // Pass 2: first index with that value
+	    for(i=0 ; i<bound ; i+=DS.length())
+	    {
+	        VectorMask<Double> eq = DoubleVector.fromArray(DS, a, i).compare(VectorOperators.EQ, min);
+	        if(eq.anyTrue()) return(i+eq.firstTrue());
+	    }
+	    for( ; i<n ; i++) if(a[i] == min) return(i);
+	    return(0);  // all values are NaN
+	}
+
+	int argMinMasked(long [] a, boolean [] valid, int n)
+	{
+	    LongVector acc = LongVector.broadcast(LS, Long.MAX_VALUE);
+	    int bound = LS.loopBound(n);
+	    boolean found = false;
+	    long min;
+	    int i;
+
+	    // Pass 1: smallest valid value
+	    for(i=0 ; i<bound ; i+=LS.length())
+	    {
+	        VectorMask<Long> vm = VectorMask.fromArray(LS, valid, i);
+	        acc = acc.lanewise(VectorOperators.MIN, LongVector.fromArray(LS, a, i), vm);
+	        found |= vm.anyTrue();
+	    }
+	    min = acc.reduceLanes(VectorOperators.MIN);
+	    for( ; i<n ; i++)
+	        if(valid[i] && a[i] <= min) { min = a[i]; found = true; }
+	    if(!found) return(-1);
+	    // Pass 2: first valid index with that value
+	    for(i=0 ; i<bound ; i+=LS.length())
+	    {
+	        VectorMask<Long> eq = LongVector.fromArray(LS, a, i).compare(VectorOperators.EQ, min)
+	                                        .and(VectorMask.fromArray(LS, valid, i));
+	        if(eq.anyTrue()) return(i+eq.firstTrue());
+	    }
+	    for( ; i<n ; i++) if(valid[i] && a[i] == min) return(i);
+	    return(-1);
+	}
+
+	void decayAndBoost(long [] count, boolean [] used, boolean [] valid, int n, long boost)
+	{
+	    int bound = LS.loopBound(n);
+	    int i;
+
+	    for(i=0 ; i<bound ; i+=LS.length())
+	    {
+	        VectorMask<Long> vm = VectorMask.fromArray(LS, valid, i);
+	        VectorMask<Long> um = VectorMask.fromArray(LS, used, i);
+	        LongVector c = LongVector.fromArray(LS, count, i);
+	        LongVector aged = c.lanewise(VectorOperators.ASHR, 1).add(boost, um.and(vm));
+	        c.blend(aged, vm).intoArray(count, i);
+	        um.andNot(vm).intoArray(used, i);
+	    }
+	    for( ; i<n ; i++)
+	    {
+	        if(!valid[i]) continue;
+	        count[i] >>= 1;
+	        if(used[i]) { count[i] += boost; used[i] = false; }
+	    }
+	}
+}
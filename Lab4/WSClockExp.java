@@ -0,0 +1,57 @@
+// File: WSClockExp.java
+// Description:
+//    Simulation of memory management system - CLOCK, WSClock and
+//    two-handed CLOCK with the number of hand moves per fault
+
+import cern.jet.random.engine.*;
+
+// Main Method: Experiments
+//
+class WSClockExp
+{
+   public static void main(String[] args)
+   {
+       double startTime=0.0, endTime=5000000;  // 5 seconds
+       Seeds sds;
+       MemManage mmng;
+       PagingAlgorithm [] algs = { PagingAlgorithm.CLOCK, PagingAlgorithm.CLOCK2,
+                                   PagingAlgorithm.WSCLOCK, PagingAlgorithm.WSCLOCK, PagingAlgorithm.WSCLOCK,
+                                   PagingAlgorithm.WSCLOCK, PagingAlgorithm.WSCLOCK, PagingAlgorithm.WSCLOCK };
+       double [] tau = { 0, 0, 10, 20, 40, 80, 160, 320 };  // WSCLOCK window (references of the process)
+       int i, m;
+
+       // Lets get a set of uncorrelated seeds
+       RandomSeedGenerator rsg = new RandomSeedGenerator();
+       sds = new Seeds( rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed(),
+		       	rsg.nextSeed(), rsg.nextSeed());
+
+       for(i=0 ; i<algs.length ; i++)
+       {
+           mmng = new MemManage(algs[i],startTime,endTime,sds);
+           if(algs[i] == PagingAlgorithm.WSCLOCK)
+           {
+               mmng.kernel.wsTau = tau[i];
+               System.out.println("Running simulation using "+algs[i]+" with tau = "+tau[i]);
+           }
+           else System.out.println("Running simulation using "+algs[i]);
+           mmng.runSimulation();
+           mmng.computeOutput();
+           System.out.println("Number of faults: "+mmng.phiTimeBtwFaults.number);
+           System.out.println("Number memory accesses (no faults): "+mmng.numMemAccesses);
+           System.out.println("Number of faults per 1000 references: "+mmng.numPer1000);
+           if(algs[i] != PagingAlgorithm.CLOCK)
+           {
+               System.out.print("Hand moves per fault (moves:faults):");
+               for(m=0 ; m<mmng.kernel.handMoves.length ; m++)
+                   if(mmng.kernel.handMoves[m] != 0) System.out.print(" "+m+":"+mmng.kernel.handMoves[m]);
+               System.out.println();
+           }
+           System.out.println();
+       }
+   }
+}